@@ -0,0 +1,95 @@
+package org.gulash.objectpool.benchmark;
+
+import org.gulash.objectpool.factory.DatabaseConnectionFactory;
+import org.gulash.objectpool.factory.item.DatabaseConnection;
+import org.gulash.objectpool.pool.BlockingItemPool;
+import org.gulash.objectpool.pool.ItemPool;
+import org.gulash.objectpool.pool.StripedItemPool;
+import org.gulash.objectpool.pool.config.PoolConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность и задержка цикла acquire/release при разном числе потоков.
+ * <p>
+ * Соединения создаются фабрикой без имитации сети ({@link DatabaseConnectionFactory#withoutLatency}),
+ * поэтому измеряются накладные расходы самого пула. Базовая линия без пула -
+ * {@link UnpooledConnectionBenchmark}.
+ * <p>
+ * Запуск: {@code ./gradlew jmh -Pjmh.includes=BlockingItemPoolBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BlockingItemPoolBenchmark {
+
+    private static final String SQL = "SELECT * FROM users WHERE id = 1";
+
+    /**
+     * Реализация и режим пула: DEFAULT, FAIR (справедливая передача), AFFINITY (привязка к потоку),
+     * STRIPED ({@link StripedItemPool} для сравнения)
+     */
+    @Param({"DEFAULT", "FAIR", "AFFINITY", "STRIPED"})
+    public String mode;
+
+    /**
+     * Максимальный размер пула. При 16 и 64 потоках пул исчерпан, и измеряется ожидание.
+     */
+    @Param({"8"})
+    public int poolSize;
+
+    private ItemPool<DatabaseConnection> pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        DatabaseConnectionFactory factory = DatabaseConnectionFactory.withoutLatency("localhost", 5432);
+        PoolConfig.Builder config = new PoolConfig.Builder(poolSize, poolSize);
+
+        pool = switch (mode) {
+            case "DEFAULT" -> new BlockingItemPool<>(factory, config.build());
+            case "FAIR" -> new BlockingItemPool<>(factory, config.setFairHandoff(true).build());
+            case "AFFINITY" -> new BlockingItemPool<>(factory, config.setThreadAffinity(true).build());
+            case "STRIPED" -> new StripedItemPool<>(factory, poolSize, poolSize);
+            default -> throw new IllegalArgumentException("Unknown mode: " + mode);
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String acquireRelease_01_thread() throws InterruptedException {
+        return acquireQueryRelease();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String acquireRelease_04_threads() throws InterruptedException {
+        return acquireQueryRelease();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String acquireRelease_16_threads() throws InterruptedException {
+        return acquireQueryRelease();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public String acquireRelease_64_threads() throws InterruptedException {
+        return acquireQueryRelease();
+    }
+
+    private String acquireQueryRelease() throws InterruptedException {
+        DatabaseConnection connection = pool.acquire();
+        try {
+            return connection.executeQuery(SQL);
+        } finally {
+            pool.release(connection);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.gulash.objectpool.benchmark;
+
+import org.gulash.objectpool.factory.DatabaseConnectionFactory;
+import org.gulash.objectpool.factory.item.DatabaseConnection;
+import org.gulash.objectpool.pool.BlockingItemPool;
+import org.gulash.objectpool.pool.ItemPool;
+import org.gulash.objectpool.pool.config.PoolConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность "запросов клиента", каждый из которых выполняет несколько независимых SQL
+ * на одном соединении: цикл {@code executeQuery} против конвейера ({@code executeBatch}, {@code submit}).
+ * <p>
+ * Соединения имитируют сеть по модели {@link DatabaseConnection.LatencyModel}: в цикле каждый запрос
+ * платит полный round trip, конвейер - один на пакет. Пул меньше числа потоков, поэтому чем меньше
+ * соединение занято одним клиентом, тем больше клиентов обслуживается в секунду.
+ * <p>
+ * Запуск: {@code ./gradlew jmh -Pjmh.includes=PipelinedQueryBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PipelinedQueryBenchmark {
+
+    /**
+     * Способ выполнения: LOOP (цикл executeQuery), BATCH (executeBatch), SUBMIT (submit + allOf)
+     */
+    @Param({"LOOP", "BATCH", "SUBMIT"})
+    public String mode;
+
+    /**
+     * Количество независимых запросов на одного клиента
+     */
+    @Param({"20"})
+    public int queries;
+
+    /**
+     * Сетевой round trip в микросекундах
+     */
+    @Param({"1000"})
+    public long roundTripMicros;
+
+    /**
+     * Время выполнения запроса на сервере в микросекундах
+     */
+    @Param({"50"})
+    public long queryMicros;
+
+    private ItemPool<DatabaseConnection> pool;
+    private List<String> sqls;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        DatabaseConnection.LatencyModel latency =
+            new DatabaseConnection.LatencyModel(roundTripMicros, queryMicros, queryMicros);
+        // Лимит запросов на соединение не должен влиять на результат - соединения не "протухают" при замере
+        DatabaseConnectionFactory factory = new DatabaseConnectionFactory("localhost", 5432, Integer.MAX_VALUE,
+            latency, false) {
+            @Override
+            public boolean validate(DatabaseConnection connection) {
+                return true;
+            }
+        };
+        pool = new BlockingItemPool<>(factory, new PoolConfig.Builder(4, 4).setJmxEnabled(false).build());
+
+        sqls = new ArrayList<>(queries);
+        for (int i = 0; i < queries; i++) {
+            sqls.add("SELECT * FROM orders WHERE id = " + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object request_16_threads() throws InterruptedException {
+        DatabaseConnection connection = pool.acquire();
+        try {
+            return switch (mode) {
+                case "LOOP" -> loop(connection);
+                case "BATCH" -> connection.executeBatch(sqls);
+                case "SUBMIT" -> submit(connection);
+                default -> throw new IllegalArgumentException("Unknown mode: " + mode);
+            };
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+    private String loop(DatabaseConnection connection) {
+        String last = null;
+        for (String sql : sqls) {
+            last = connection.executeQuery(sql);
+        }
+        return last;
+    }
+
+    private List<String> submit(DatabaseConnection connection) {
+        List<CompletableFuture<String>> futures = new ArrayList<>(sqls.size());
+        for (String sql : sqls) {
+            futures.add(connection.submit(sql));
+        }
+        List<String> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<String> future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+}
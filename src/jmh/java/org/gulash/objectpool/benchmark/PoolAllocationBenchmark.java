@@ -0,0 +1,84 @@
+package org.gulash.objectpool.benchmark;
+
+import org.gulash.objectpool.factory.ItemFactory;
+import org.gulash.objectpool.pool.BlockingItemPool;
+import org.gulash.objectpool.pool.ItemPool;
+import org.gulash.objectpool.pool.SlotItemPool;
+import org.gulash.objectpool.pool.StripedItemPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Аллокации на цикл acquire/release без полезной работы между ними.
+ * <p>
+ * Пул хранит пустые объекты с фабрикой без логики (соединение само выделяет строки при логировании),
+ * поэтому метрика {@code gc.alloc.rate.norm} показывает байты, выделенные самим пулом на одну операцию.
+ * Для {@link SlotItemPool} в установившемся режиме она должна быть около нуля.
+ * <p>
+ * Запуск: {@code ./gradlew jmh -Pjmh.includes=PoolAllocationBenchmark -Pjmh.profilers=gc}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PoolAllocationBenchmark {
+
+    /**
+     * Реализация пула: BLOCKING ({@link BlockingItemPool}), STRIPED ({@link StripedItemPool}), SLOT ({@link SlotItemPool})
+     */
+    @Param({"BLOCKING", "STRIPED", "SLOT"})
+    public String mode;
+
+    /**
+     * Размер пула: больше числа потоков, чтобы измерялся путь без ожидания
+     */
+    @Param({"16"})
+    public int poolSize;
+
+    private ItemPool<Object> pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        NoOpFactory factory = new NoOpFactory();
+
+        pool = switch (mode) {
+            case "BLOCKING" -> new BlockingItemPool<>(factory, poolSize, poolSize);
+            case "STRIPED" -> new StripedItemPool<>(factory, poolSize, poolSize);
+            case "SLOT" -> new SlotItemPool<>(factory, poolSize, poolSize);
+            default -> throw new IllegalArgumentException("Unknown mode: " + mode);
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object acquireRelease_01_thread() throws InterruptedException {
+        return acquireRelease();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object acquireRelease_04_threads() throws InterruptedException {
+        return acquireRelease();
+    }
+
+    private Object acquireRelease() throws InterruptedException {
+        Object item = pool.acquire();
+        pool.release(item);
+        return item;
+    }
+
+    /**
+     * Фабрика пустых объектов: validate/reset/destroy по умолчанию ничего не делают и не выделяют память.
+     */
+    public static class NoOpFactory implements ItemFactory<Object> {
+        @Override
+        public Object create(ItemPool<Object> objectPool) {
+            return new Object();
+        }
+    }
+}
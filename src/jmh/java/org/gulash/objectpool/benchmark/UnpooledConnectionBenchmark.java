@@ -0,0 +1,63 @@
+package org.gulash.objectpool.benchmark;
+
+import org.gulash.objectpool.factory.DatabaseConnectionFactory;
+import org.gulash.objectpool.factory.item.DatabaseConnection;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Базовая линия для {@link BlockingItemPoolBenchmark}: каждое обращение создает и уничтожает соединение.
+ * <p>
+ * Без имитации сети создание соединения почти бесплатно, поэтому бенчмарк показывает нижнюю границу
+ * стоимости работы без пула. С реальными соединениями (100-500ms на создание) разрыв будет на порядки больше.
+ * <p>
+ * Запуск: {@code ./gradlew jmh -Pjmh.includes=UnpooledConnectionBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UnpooledConnectionBenchmark {
+
+    private static final String SQL = "SELECT * FROM users WHERE id = 1";
+
+    private DatabaseConnectionFactory factory;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        factory = DatabaseConnectionFactory.withoutLatency("localhost", 5432);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String createQueryDestroy_01_thread() {
+        return createQueryDestroy();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String createQueryDestroy_04_threads() {
+        return createQueryDestroy();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String createQueryDestroy_16_threads() {
+        return createQueryDestroy();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public String createQueryDestroy_64_threads() {
+        return createQueryDestroy();
+    }
+
+    private String createQueryDestroy() {
+        DatabaseConnection connection = factory.create(null);
+        try {
+            return connection.executeQuery(SQL);
+        } finally {
+            factory.destroy(connection);
+        }
+    }
+}
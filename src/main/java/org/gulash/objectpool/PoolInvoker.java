@@ -2,13 +2,18 @@ package org.gulash.objectpool;
 
 
 import org.gulash.objectpool.factory.item.DatabaseConnection;
+import org.gulash.objectpool.factory.item.StatementCache;
 import org.gulash.objectpool.factory.DatabaseConnectionFactory;
 import org.gulash.objectpool.pool.BlockingItemPool;
 import org.gulash.objectpool.pool.ItemPool;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Демонстрация использования пула объектов.
@@ -29,6 +34,21 @@ public class PoolInvoker {
 
         System.out.println("\n" + "=".repeat(50) + "\n");
 
+        // Демонстрация 3: Виртуальные потоки против фиксированного пула платформенных потоков
+        virtualThreadsBenchmark();
+
+        System.out.println("\n" + "=".repeat(50) + "\n");
+
+        // Демонстрация 4: Конвейерное выполнение запросов на одном соединении
+        pipelinedQueriesDemo();
+
+        System.out.println("\n" + "=".repeat(50) + "\n");
+
+        // Демонстрация 5: Кэш подготовленных statement
+        statementCacheDemo();
+
+        System.out.println("\n" + "=".repeat(50) + "\n");
+
     }
 
     /**
@@ -124,4 +144,165 @@ public class PoolInvoker {
             System.out.println("=".repeat(50));
         }
     }
+
+    /**
+     * Сравнение 10 000 клиентов на виртуальных потоках с фиксированным пулом платформенных потоков.
+     * <p>
+     * Каждый клиент сначала "ждет" внешний ввод-вывод (например, чтение запроса), затем берет соединение
+     * и выполняет запрос. На фиксированном пуле потоков клиенты ждут свободный поток, на виртуальных -
+     * только свободное соединение. Пул не держит мониторов при создании объектов, поэтому виртуальные
+     * потоки не "прикалываются" к потокам-носителям и соединения создаются параллельно.
+     */
+    private static void virtualThreadsBenchmark() throws Exception {
+        System.out.println("ДЕМО 3: Виртуальные потоки (JDK 21)");
+        System.out.println("-".repeat(50));
+
+        final int clients = 10_000;
+        final int platformThreads = 200;
+        final int maxConnections = 100;
+
+        System.out.printf("Сценарий: %d клиентов, пул до %d соединений.%n", clients, maxConnections);
+        System.out.println("Вывод самих соединений отключен, чтобы не искажать результат.\n");
+
+        long platformMs = runClients(Executors.newFixedThreadPool(platformThreads), clients, maxConnections);
+        long virtualMs = runClients(Executors.newVirtualThreadPerTaskExecutor(), clients, maxConnections);
+
+        System.out.printf("Фиксированный пул (%d платформенных потоков): %6d ms%n", platformThreads, platformMs);
+        System.out.printf("Виртуальный поток на задачу:                   %6d ms%n", virtualMs);
+    }
+
+    /**
+     * 20 независимых запросов одного клиента: цикл executeQuery против конвейера (executeBatch и submit).
+     * <p>
+     * В цикле каждый запрос платит полный round trip, поэтому соединение занято 20 * (RTT + t).
+     * Конвейер отправляет запросы подряд и платит RTT один раз: RTT + 20 * t.
+     */
+    private static void pipelinedQueriesDemo() throws Exception {
+        System.out.println("ДЕМО 4: Конвейерное выполнение запросов");
+        System.out.println("-".repeat(50));
+
+        final int queries = 20;
+        // RTT 10ms, выполнение на сервере 1ms: типичный короткий запрос к удаленной БД
+        DatabaseConnection.LatencyModel latency = new DatabaseConnection.LatencyModel(10_000, 1_000, 1_000);
+        System.out.printf("Сценарий: %d независимых запросов, RTT %dms, выполнение %dms.%n%n",
+            queries, latency.roundTripMicros() / 1000, latency.maxQueryMicros() / 1000);
+
+        List<String> sqls = new ArrayList<>(queries);
+        for (int i = 0; i < queries; i++) {
+            sqls.add("SELECT * FROM orders WHERE id = " + i);
+        }
+
+        DatabaseConnectionFactory factory = DatabaseConnectionFactory.withLatencyModel("localhost", 5432, latency);
+        try (ItemPool<DatabaseConnection> pool = new BlockingItemPool<>(factory, 1, 1)) {
+            long start = System.nanoTime();
+            try (DatabaseConnection conn = pool.acquire()) {
+                for (String sql : sqls) {
+                    conn.executeQuery(sql);
+                }
+            }
+            long loopMs = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            try (DatabaseConnection conn = pool.acquire()) {
+                conn.executeBatch(sqls);
+            }
+            long batchMs = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            try (DatabaseConnection conn = pool.acquire()) {
+                List<CompletableFuture<String>> results = new ArrayList<>(queries);
+                for (String sql : sqls) {
+                    results.add(conn.submit(sql));
+                }
+                CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).join();
+            }
+            long submitMs = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.printf("Цикл executeQuery: соединение занято %4d ms%n", loopMs);
+            System.out.printf("executeBatch:      соединение занято %4d ms%n", batchMs);
+            System.out.printf("submit + allOf:    соединение занято %4d ms%n", submitMs);
+        }
+    }
+
+    /**
+     * Повторяющиеся горячие запросы без кэша подготовленных statement и с ним (с очисткой при reset и без).
+     */
+    private static void statementCacheDemo() throws Exception {
+        System.out.println("ДЕМО 5: Кэш подготовленных statement");
+        System.out.println("-".repeat(50));
+
+        // RTT 2ms, выполнение 1ms, подготовка 3ms: подготовка дороже самого запроса
+        DatabaseConnection.LatencyModel latency = new DatabaseConnection.LatencyModel(2_000, 1_000, 1_000, 3_000);
+        String[] hotQueries = {
+            "SELECT * FROM users WHERE id = ?",
+            "SELECT * FROM orders WHERE user_id = ?",
+            "UPDATE users SET last_seen = ? WHERE id = ?"
+        };
+        System.out.println("Сценарий: 30 клиентов по 3 горячих запроса, RTT 2ms, выполнение 1ms, подготовка 3ms.\n");
+
+        DatabaseConnectionFactory plain = DatabaseConnectionFactory.withLatencyModel("localhost", 5432, latency);
+        runHotQueries("Без кэша statement", plain, hotQueries);
+        runHotQueries("Кэш, CLEAR при reset", plain.withStatementCache(16, StatementCache.ResetPolicy.CLEAR), hotQueries);
+        runHotQueries("Кэш, KEEP при reset", plain.withStatementCache(16, StatementCache.ResetPolicy.KEEP), hotQueries);
+        System.out.println("Общий кэш разбора SQL: " + plain.getParseCacheStats());
+    }
+
+    private static void runHotQueries(String title, DatabaseConnectionFactory factory, String[] queries) throws Exception {
+        long elapsedMs;
+        String lastConnection = null;
+        try (ItemPool<DatabaseConnection> pool = new BlockingItemPool<>(factory, 1, 1)) {
+            // Время создания соединения (100-500ms) не учитываем - сравниваем только выполнение запросов
+            long start = System.nanoTime();
+            for (int client = 0; client < 30; client++) {
+                try (DatabaseConnection conn = pool.acquire()) {
+                    for (String sql : queries) {
+                        conn.executeQuery(sql);
+                    }
+                    lastConnection = conn.toString();
+                }
+            }
+            elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        }
+        System.out.printf("%-22s %4d ms  %s%n", title + ":", elapsedMs, lastConnection);
+    }
+
+    private static long runClients(ExecutorService executor, int clients, int maxConnections) throws Exception {
+        // Задержки сети сохраняем, а вывод в консоль на каждый возврат соединения - отключаем
+        DatabaseConnectionFactory factory = new DatabaseConnectionFactory("localhost", 5432,
+            DatabaseConnection.MAX_QUERIES * 9 / 10, true, false);
+        AtomicInteger timeouts = new AtomicInteger();
+
+        long start = System.currentTimeMillis();
+        try (ItemPool<DatabaseConnection> pool = new BlockingItemPool<>(factory, 0, maxConnections)) {
+            CountDownLatch latch = new CountDownLatch(clients);
+
+            for (int i = 0; i < clients; i++) {
+                final int taskId = i;
+                executor.submit(() -> {
+                    try {
+                        Thread.sleep(100); // Симуляция внешнего ввода-вывода клиента (чтение запроса, вызов соседнего сервиса)
+                        DatabaseConnection conn = pool.acquire(30_000);
+                        if (conn == null) {
+                            timeouts.incrementAndGet();
+                            return;
+                        }
+                        try {
+                            conn.executeQuery("SELECT data FROM table_" + taskId);
+                        } finally {
+                            pool.release(conn);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        latch.countDown();
+                    }
+                });
+            }
+
+            latch.await();
+            executor.shutdown();
+            System.out.println(pool.getStatistics() + ", клиентских тайм-аутов: " + timeouts.get());
+        }
+        return System.currentTimeMillis() - start;
+    }
 }
@@ -1,7 +1,10 @@
 package org.gulash.objectpool.factory;
 
 
+import org.gulash.objectpool.factory.item.CacheStats;
 import org.gulash.objectpool.factory.item.DatabaseConnection;
+import org.gulash.objectpool.factory.item.SqlParseCache;
+import org.gulash.objectpool.factory.item.StatementCache;
 import org.gulash.objectpool.pool.ItemPool;
 
 /**
@@ -11,15 +14,112 @@ public class DatabaseConnectionFactory implements ItemFactory<DatabaseConnection
     private final String host;
     private final int port;
 
+    /**
+     * Количество запросов, после которого соединение заменяется заранее (до достижения лимита)
+     */
+    private final int retireAfterQueries;
+
+    /**
+     * Модель задержек создаваемых соединений
+     */
+    private final DatabaseConnection.LatencyModel latencyModel;
+
+    /**
+     * Выводить ли в консоль события жизненного цикла создаваемых соединений
+     */
+    private final boolean verbose;
+
+    /**
+     * Кэш разобранного SQL, общий для всех соединений этой фабрики (то есть пула)
+     */
+    private final SqlParseCache parseCache;
+
+    /**
+     * Размер кэша подготовленных statement каждого соединения (0 - кэш выключен) и политика его очистки
+     */
+    private final int statementCacheSize;
+    private final StatementCache.ResetPolicy statementCachePolicy;
+
     public DatabaseConnectionFactory(String host, int port) {
+        this(host, port, DatabaseConnection.MAX_QUERIES * 9 / 10);
+    }
+
+    public DatabaseConnectionFactory(String host, int port, int retireAfterQueries) {
+        this(host, port, retireAfterQueries, true, true);
+    }
+
+    public DatabaseConnectionFactory(String host, int port, int retireAfterQueries,
+                                     boolean simulateLatency, boolean verbose) {
+        this(host, port, retireAfterQueries,
+            simulateLatency ? DatabaseConnection.LatencyModel.DEFAULT : DatabaseConnection.LatencyModel.NONE, verbose);
+    }
+
+    public DatabaseConnectionFactory(String host, int port, int retireAfterQueries,
+                                     DatabaseConnection.LatencyModel latencyModel, boolean verbose) {
+        this(host, port, retireAfterQueries, latencyModel, verbose, new SqlParseCache(1000), 0,
+            StatementCache.ResetPolicy.KEEP);
+    }
+
+    private DatabaseConnectionFactory(String host, int port, int retireAfterQueries,
+                                      DatabaseConnection.LatencyModel latencyModel, boolean verbose,
+                                      SqlParseCache parseCache, int statementCacheSize,
+                                      StatementCache.ResetPolicy statementCachePolicy) {
         this.host = host;
         this.port = port;
+        this.retireAfterQueries = retireAfterQueries;
+        this.latencyModel = latencyModel;
+        this.verbose = verbose;
+        this.parseCache = parseCache;
+        this.statementCacheSize = statementCacheSize;
+        this.statementCachePolicy = statementCachePolicy;
+    }
+
+    /**
+     * Копия фабрики, соединения которой держат кэш подготовленных statement.
+     * Кэш разобранного SQL остается общим с исходной фабрикой.
+     *
+     * @param size   сколько подготовленных statement держит каждое соединение (LRU)
+     * @param policy очищать ли кэш при возврате соединения в пул
+     */
+    public DatabaseConnectionFactory withStatementCache(int size, StatementCache.ResetPolicy policy) {
+        if (size <= 0 || policy == null) {
+            throw new IllegalArgumentException("Invalid statement cache settings: size=" + size + ", policy=" + policy);
+        }
+        return new DatabaseConnectionFactory(host, port, retireAfterQueries, latencyModel, verbose,
+            parseCache, size, policy);
+    }
+
+    /**
+     * Счетчики общего кэша разобранного SQL.
+     */
+    public CacheStats getParseCacheStats() {
+        return parseCache.getStats();
+    }
+
+    /**
+     * Фабрика "мгновенных" соединений без задержек и вывода в консоль.
+     * Нужна бенчмаркам, которые измеряют накладные расходы самого пула, а не имитацию сети.
+     */
+    public static DatabaseConnectionFactory withoutLatency(String host, int port) {
+        return new DatabaseConnectionFactory(host, port, DatabaseConnection.MAX_QUERIES * 9 / 10, false, false);
+    }
+
+    /**
+     * Фабрика соединений с заданной моделью задержек запросов и без вывода в консоль.
+     * Нужна бенчмаркам, которые сравнивают способы выполнения запросов (например, конвейер против цикла).
+     */
+    public static DatabaseConnectionFactory withLatencyModel(String host, int port,
+                                                             DatabaseConnection.LatencyModel latencyModel) {
+        return new DatabaseConnectionFactory(host, port, DatabaseConnection.MAX_QUERIES * 9 / 10, latencyModel, false);
     }
 
     @Override
     public DatabaseConnection create(ItemPool<DatabaseConnection> objectPool) {
         // Фабрика делегирует создание самому объекту
-        return new DatabaseConnection(host, port, objectPool);
+        StatementCache statementCache = statementCacheSize > 0
+            ? new StatementCache(statementCacheSize, statementCachePolicy)
+            : null;
+        return new DatabaseConnection(host, port, objectPool, latencyModel, verbose, parseCache, statementCache);
     }
 
     @Override
@@ -28,6 +128,12 @@ public class DatabaseConnectionFactory implements ItemFactory<DatabaseConnection
         return connection.isValid();
     }
 
+    @Override
+    public boolean shouldRetire(DatabaseConnection connection) {
+        // Соединение близко к лимиту запросов - лучше заменить его в фоне, чем на пути запроса
+        return connection.getQueryCount() >= retireAfterQueries;
+    }
+
     @Override
     public void reset(DatabaseConnection connection) {
         // Сброс транзакций и параметров перед возвратом в пул
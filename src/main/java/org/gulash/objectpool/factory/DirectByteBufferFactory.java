@@ -0,0 +1,47 @@
+package org.gulash.objectpool.factory;
+
+import org.gulash.objectpool.pool.ItemPool;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Фабрика буферов в памяти вне кучи (direct {@link ByteBuffer}) фиксированной емкости.
+ * <p>
+ * Direct-буфер дорого выделять (обнуление памяти, регистрация очистки в GC), зато ввод-вывод
+ * работает с ним без лишнего копирования. Поэтому сетевому и файловому коду выгодно не выделять
+ * буфер на каждый запрос, а брать его из пула.
+ * <p>
+ * ВАЖНО: equals/hashCode у ByteBuffer зависят от содержимого, поэтому такие буферы можно хранить
+ * только в пулах, которые различают объекты по ссылке (например, {@code SlotItemPool}).
+ */
+public class DirectByteBufferFactory implements ItemFactory<ByteBuffer> {
+    private final int capacity;
+
+    public DirectByteBufferFactory(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid buffer capacity: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    @Override
+    public ByteBuffer create(ItemPool<ByteBuffer> objectPool) {
+        return ByteBuffer.allocateDirect(capacity);
+    }
+
+    @Override
+    public boolean validate(ByteBuffer buffer) {
+        // Клиент мог получить read-only представление или подменить буфер - такой буфер в пул не годится
+        return buffer.isDirect() && !buffer.isReadOnly() && buffer.capacity() == capacity;
+    }
+
+    @Override
+    public void reset(ByteBuffer buffer) {
+        // Позиция, лимит и метка - в исходное состояние; содержимое не затирается (это дорого и не нужно)
+        buffer.clear();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
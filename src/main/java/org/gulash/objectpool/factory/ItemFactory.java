@@ -32,6 +32,19 @@ public interface ItemFactory<T> {
         return true;
     }
 
+    /**
+     * Проверить, не пора ли заранее "отправить на пенсию" исправный объект.
+     * В отличие от {@link #validate(Object)}, объект еще годен, но скоро перестанет быть таковым
+     * (например, близок к лимиту запросов). Фоновое обслуживание пула уничтожает такие объекты
+     * и создает замену заранее, чтобы стоимость создания не легла на путь запроса клиента.
+     *
+     * @param object проверяемый объект
+     * @return true - объект стоит заменить заранее
+     */
+    default boolean shouldRetire(T object) {
+        return false;
+    }
+
     /**
      * Подготовить объект к возврату в пул.
      * Позволяет "очистить" объект от данных предыдущего использования
@@ -0,0 +1,25 @@
+package org.gulash.objectpool.factory.item;
+
+/**
+ * Счетчики кэша: попадания, промахи и вытеснения.
+ *
+ * @param hits      сколько раз значение найдено в кэше
+ * @param misses    сколько раз значения не было и его пришлось вычислить
+ * @param evictions сколько значений вытеснено из-за ограничения размера
+ */
+public record CacheStats(long hits, long misses, long evictions) {
+
+    /**
+     * Доля попаданий от 0 до 1 (0, если к кэшу еще не обращались).
+     */
+    public double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheStats{hits=%d, misses=%d, evictions=%d, hitRate=%.1f%%}",
+            hits, misses, evictions, hitRate() * 100);
+    }
+}
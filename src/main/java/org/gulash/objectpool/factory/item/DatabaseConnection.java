@@ -3,6 +3,13 @@ package org.gulash.objectpool.factory.item;
 
 import org.gulash.objectpool.pool.ItemPool;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * Пример дорогостоящего объекта - соединение с базой данных.
  * <p>
@@ -12,52 +19,249 @@ import org.gulash.objectpool.pool.ItemPool;
  * <p>
  * DatabaseConnection реализует AutoCloseable для удобного использования в try-with-resources,
  * но вместо закрытия физического соединения оно возвращает себя в пул.
+ * <p>
+ * Конвейерное выполнение (pipelining): {@link #executeBatch(List)} и {@link #submit(String)} отправляют
+ * запросы подряд, не дожидаясь ответов на предыдущие. Сервер выполняет их по очереди, а сетевую задержку
+ * (round trip) пакет платит один раз: 20 запросов занимают соединение на RTT + 20 * t вместо 20 * (RTT + t).
+ * Задержки задаются моделью {@link LatencyModel}.
+ * <p>
+ * Подготовка запроса (разбор SQL и построение плана на сервере) тоже стоит времени. Опционально соединение
+ * держит {@link StatementCache} подготовленных statement, а разбор SQL разделяется между соединениями
+ * пула через {@link SqlParseCache}: повторяющиеся горячие запросы не подготавливаются заново.
  */
 public class DatabaseConnection implements AutoCloseable {
+    /**
+     * Лимит запросов на одно соединение, после которого оно считается "протухшим"
+     */
+    public static final int MAX_QUERIES = 100;
+
     private final String id;
     private final String host;
     private final int port;
     private final ItemPool<DatabaseConnection> parentPool;
-    private boolean connected;
-    private int queryCount;
+
+    /**
+     * Имитировать ли задержку создания соединения (100-500ms)
+     */
+    private final boolean simulateLatency;
+
+    /**
+     * Модель задержек выполнения запросов
+     */
+    private final LatencyModel latencyModel;
+
+    /**
+     * Запросы отправляются в соединение по одному: порядок на "сервере" совпадает с порядком отправки
+     */
+    private final ReentrantLock pipelineLock;
+
+    /**
+     * Общий кэш разобранного SQL (null - разбирать каждый раз)
+     */
+    private final SqlParseCache parseCache;
+
+    /**
+     * Кэш подготовленных statement этого соединения (null - подготавливать каждый раз)
+     */
+    private final StatementCache statementCache;
+
+    /**
+     * Когда (по System.nanoTime) сервер закончит выполнять уже отправленные запросы и придет последний ответ
+     */
+    private long serverBusyUntil;
+    private long lastResponseAt;
+
+    /**
+     * Выводить ли в консоль события жизненного цикла соединения
+     */
+    private final boolean verbose;
+
+    private volatile boolean connected;
+    private volatile int queryCount;
 
     public DatabaseConnection(String host, int port, ItemPool<DatabaseConnection> parentPool) {
+        this(host, port, parentPool, true, true);
+    }
+
+    /**
+     * @param simulateLatency имитировать ли сетевые задержки (false - для бенчмарков самого пула)
+     * @param verbose         выводить ли в консоль события жизненного цикла соединения
+     */
+    public DatabaseConnection(String host, int port, ItemPool<DatabaseConnection> parentPool,
+                              boolean simulateLatency, boolean verbose) {
+        this(host, port, parentPool, simulateLatency ? LatencyModel.DEFAULT : LatencyModel.NONE, verbose);
+    }
+
+    /**
+     * @param latencyModel задержки выполнения запросов ({@link LatencyModel#NONE} - без задержек,
+     *                     в том числе без задержки создания соединения)
+     * @param verbose      выводить ли в консоль события жизненного цикла соединения
+     */
+    public DatabaseConnection(String host, int port, ItemPool<DatabaseConnection> parentPool,
+                              LatencyModel latencyModel, boolean verbose) {
+        this(host, port, parentPool, latencyModel, verbose, null, null);
+    }
+
+    /**
+     * @param latencyModel   задержки выполнения запросов
+     * @param verbose        выводить ли в консоль события жизненного цикла соединения
+     * @param parseCache     общий для пула кэш разобранного SQL или null
+     * @param statementCache кэш подготовленных statement этого соединения или null
+     */
+    public DatabaseConnection(String host, int port, ItemPool<DatabaseConnection> parentPool,
+                              LatencyModel latencyModel, boolean verbose,
+                              SqlParseCache parseCache, StatementCache statementCache) {
         this.id = generateId();
         this.host = host;
         this.port = port;
         this.parentPool = parentPool;
+        this.latencyModel = latencyModel;
+        this.simulateLatency = !LatencyModel.NONE.equals(latencyModel);
+        this.verbose = verbose;
+        this.pipelineLock = new ReentrantLock();
+        this.parseCache = parseCache;
+        this.statementCache = statementCache;
 
         // Симулируем дорогостоящее создание соединения (100-500ms).
         // В реальной жизни здесь была бы сетевая задержка и тяжелые операции.
-        try {
-            Thread.sleep(100 + (int) (Math.random() * 400));
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+        if (simulateLatency) {
+            try {
+                Thread.sleep(100 + (int) (Math.random() * 400));
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
         }
 
         this.connected = true;
         this.queryCount = 0;
 
-        System.out.println("✓ Физическое создание нового соединения: " + id);
+        log("✓ Физическое создание нового соединения: " + id);
     }
 
     /**
-     * Симуляция полезной работы объекта.
+     * Симуляция полезной работы объекта: запрос отправляется, и поток ждет ответа (RTT + время выполнения).
      */
     public String executeQuery(String sql) {
-        if (!connected) {
-            throw new IllegalStateException("Соединение закрыто!");
+        checkConnected();
+
+        long responseAt;
+        pipelineLock.lock();
+        try {
+            responseAt = send(sql);
+        } finally {
+            pipelineLock.unlock();
         }
+        awaitResponse(responseAt);
 
-        queryCount++;
+        return result(sql);
+    }
+
+    /**
+     * Выполнить несколько независимых запросов конвейером: все запросы отправляются подряд,
+     * и поток ждет только последний ответ.
+     *
+     * @return результаты в порядке запросов
+     */
+    public List<String> executeBatch(List<String> sqls) {
+        checkConnected();
 
-        // Симулируем выполнение запроса
+        long responseAt = System.nanoTime();
+        pipelineLock.lock();
         try {
-            Thread.sleep(10 + (int) (Math.random() * 20));
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+            for (String sql : sqls) {
+                responseAt = send(sql);
+            }
+        } finally {
+            pipelineLock.unlock();
+        }
+        awaitResponse(responseAt);
+
+        List<String> results = new ArrayList<>(sqls.size());
+        for (String sql : sqls) {
+            results.add(result(sql));
         }
+        return results;
+    }
+
+    /**
+     * Отправить запрос, не дожидаясь ответа. Запросы, отправленные подряд, выполняются конвейером.
+     * Future завершается в момент "прихода" ответа, ни один поток при этом не блокируется.
+     * <p>
+     * Перед возвратом в пул {@link #reset()} дожидается ответов на все отправленные запросы.
+     */
+    public CompletableFuture<String> submit(String sql) {
+        checkConnected();
 
+        long responseAt;
+        pipelineLock.lock();
+        try {
+            responseAt = send(sql);
+        } finally {
+            pipelineLock.unlock();
+        }
+
+        long delay = responseAt - System.nanoTime();
+        if (delay <= 0) {
+            return CompletableFuture.completedFuture(result(sql));
+        }
+        return CompletableFuture.supplyAsync(() -> result(sql),
+            CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * "Отправить" один запрос (под pipelineLock): запрос идет до сервера половину RTT, ждет, пока сервер
+     * закончит предыдущие запросы, подготавливается (если statement нет в кэше), выполняется,
+     * и ответ идет обратно еще половину RTT.
+     *
+     * @return момент прихода ответа (по System.nanoTime)
+     */
+    private long send(String sql) {
+        queryCount++;
+        long serverNanos = latencyModel.nextQueryNanos();
+        if (prepare(sql)) {
+            serverNanos += latencyModel.prepareNanos();
+        }
+        long halfRoundTrip = latencyModel.roundTripNanos() / 2;
+        long serverStart = Math.max(System.nanoTime() + halfRoundTrip, serverBusyUntil);
+        serverBusyUntil = serverStart + serverNanos;
+        lastResponseAt = serverBusyUntil + (latencyModel.roundTripNanos() - halfRoundTrip);
+        return lastResponseAt;
+    }
+
+    /**
+     * Подготовить statement, если его нет в кэше соединения.
+     *
+     * @return true, если statement пришлось подготовить на сервере
+     */
+    private boolean prepare(String sql) {
+        if (statementCache != null && statementCache.get(sql) != null) {
+            return false;
+        }
+        ParsedSql parsed = parseCache != null ? parseCache.get(sql) : ParsedSql.parse(sql);
+        if (statementCache != null) {
+            statementCache.put(sql, parsed);
+        }
+        return true;
+    }
+
+    private void awaitResponse(long responseAt) {
+        long remaining = responseAt - System.nanoTime();
+        if (remaining > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void checkConnected() {
+        if (!connected) {
+            throw new IllegalStateException("Соединение закрыто!");
+        }
+    }
+
+    private String result(String sql) {
         return "Результат от " + id + " для запроса: " + sql;
     }
 
@@ -67,14 +271,38 @@ public class DatabaseConnection implements AutoCloseable {
      */
     public boolean isValid() {
         // Например, мы ограничиваем жизнь соединения 100 запросами
-        return connected && queryCount < 100;
+        return connected && queryCount < MAX_QUERIES;
+    }
+
+    public int getQueryCount() {
+        return queryCount;
+    }
+
+    /**
+     * Счетчики кэша подготовленных statement (null, если кэш выключен).
+     */
+    public CacheStats getStatementCacheStats() {
+        return statementCache == null ? null : statementCache.getStats();
     }
 
     /**
      * Сброс состояния перед возвратом в пул.
      */
     public void reset() {
-        System.out.println("↻ Очистка состояния соединения (сброс транзакций и т.д.): " + id);
+        // Ответы на запросы, отправленные через submit, нужно дочитать, иначе их получит следующий клиент
+        long responseAt;
+        pipelineLock.lock();
+        try {
+            responseAt = lastResponseAt;
+            if (statementCache != null) {
+                statementCache.onReset();
+            }
+        } finally {
+            pipelineLock.unlock();
+        }
+        awaitResponse(responseAt);
+
+        log("↻ Очистка состояния соединения (сброс транзакций и т.д.): " + id);
     }
 
     /**
@@ -86,7 +314,7 @@ public class DatabaseConnection implements AutoCloseable {
     public void close() {
         parentPool.release(this);
 
-        System.out.println("← Соединение " + id + " возвращено в пул клиентом");
+        log("← Соединение " + id + " возвращено в пул клиентом");
     }
 
     /**
@@ -95,7 +323,13 @@ public class DatabaseConnection implements AutoCloseable {
      */
     public void destroy() {
         connected = false;
-        System.out.println("✗ Физическое закрытие соединения: " + id);
+        log("✗ Физическое закрытие соединения: " + id);
+    }
+
+    private void log(String message) {
+        if (verbose) {
+            System.out.println(message);
+        }
     }
 
     private String generateId() {
@@ -104,7 +338,63 @@ public class DatabaseConnection implements AutoCloseable {
 
     @Override
     public String toString() {
+        if (statementCache != null) {
+            return String.format("DatabaseConnection{id='%s', host='%s', port=%d, queries=%d, statementCacheHitRate=%.1f%%}",
+                id, host, port, queryCount, statementCache.getStats().hitRate() * 100);
+        }
         return String.format("DatabaseConnection{id='%s', host='%s', port=%d, queries=%d}",
             id, host, port, queryCount);
     }
+
+    /**
+     * Модель задержек запроса: сетевой round trip плюс время выполнения на сервере
+     * (равномерно от minQueryMicros до maxQueryMicros) плюс подготовка statement, если его нет в кэше.
+     * Сервер выполняет запросы одного соединения по очереди.
+     *
+     * @param roundTripMicros время "туда и обратно" по сети в микросекундах
+     * @param minQueryMicros  минимальное время выполнения запроса на сервере
+     * @param maxQueryMicros  максимальное время выполнения запроса на сервере
+     * @param prepareMicros   время подготовки statement на сервере (разбор и построение плана)
+     */
+    public record LatencyModel(long roundTripMicros, long minQueryMicros, long maxQueryMicros, long prepareMicros) {
+
+        /**
+         * Без задержек - для бенчмарков самого пула
+         */
+        public static final LatencyModel NONE = new LatencyModel(0, 0, 0);
+
+        /**
+         * RTT 8ms + выполнение 2-22ms: одиночный запрос занимает 10-30ms
+         */
+        public static final LatencyModel DEFAULT = new LatencyModel(8_000, 2_000, 22_000);
+
+        public LatencyModel {
+            if (roundTripMicros < 0 || minQueryMicros < 0 || maxQueryMicros < minQueryMicros || prepareMicros < 0) {
+                throw new IllegalArgumentException("Invalid latency model: rtt=" + roundTripMicros
+                    + ", query=" + minQueryMicros + ".." + maxQueryMicros + ", prepare=" + prepareMicros);
+            }
+        }
+
+        /**
+         * Модель без отдельной стоимости подготовки statement.
+         */
+        public LatencyModel(long roundTripMicros, long minQueryMicros, long maxQueryMicros) {
+            this(roundTripMicros, minQueryMicros, maxQueryMicros, 0);
+        }
+
+        long prepareNanos() {
+            return TimeUnit.MICROSECONDS.toNanos(prepareMicros);
+        }
+
+        long roundTripNanos() {
+            return TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+        }
+
+        long nextQueryNanos() {
+            long micros = minQueryMicros == maxQueryMicros
+                ? minQueryMicros
+                : ThreadLocalRandom.current().nextLong(minQueryMicros, maxQueryMicros + 1);
+            return TimeUnit.MICROSECONDS.toNanos(micros);
+        }
+    }
 }
@@ -0,0 +1,49 @@
+package org.gulash.objectpool.factory.item;
+
+import java.util.Locale;
+
+/**
+ * Результат разбора SQL на стороне клиента: нормализованный текст, команда и количество параметров.
+ * <p>
+ * Разбор не зависит от соединения, поэтому его результат можно разделять между всеми соединениями пула
+ * (см. {@link SqlParseCache}).
+ *
+ * @param sql            исходный текст запроса
+ * @param normalized     текст без лишних пробелов и переводов строк
+ * @param command        первая команда запроса в верхнем регистре (SELECT, INSERT, ...)
+ * @param parameterCount количество параметров "?" вне строковых литералов
+ */
+public record ParsedSql(String sql, String normalized, String command, int parameterCount) {
+
+    /**
+     * Разобрать SQL. Строковые литералы в одинарных кавычках переносятся без изменений.
+     */
+    public static ParsedSql parse(String sql) {
+        StringBuilder normalized = new StringBuilder(sql.length());
+        int parameterCount = 0;
+        boolean inLiteral = false;
+        boolean pendingSpace = false;
+
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                inLiteral = !inLiteral;
+            } else if (!inLiteral && Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+                continue;
+            } else if (!inLiteral && c == '?') {
+                parameterCount++;
+            }
+            if (pendingSpace) {
+                normalized.append(' ');
+                pendingSpace = false;
+            }
+            normalized.append(c);
+        }
+
+        String text = normalized.toString();
+        int end = text.indexOf(' ');
+        String command = (end < 0 ? text : text.substring(0, end)).toUpperCase(Locale.ROOT);
+        return new ParsedSql(sql, text, command, parameterCount);
+    }
+}
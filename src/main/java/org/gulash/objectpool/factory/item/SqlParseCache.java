@@ -0,0 +1,72 @@
+package org.gulash.objectpool.factory.item;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Общий для всех соединений пула кэш разобранного SQL ({@link ParsedSql}) по тексту запроса.
+ * <p>
+ * Соединение разбирает SQL только при подготовке нового statement, и горячие запросы разбираются
+ * один раз на весь пул, а не по разу на соединение. Размер ограничен: при переполнении вытесняется
+ * произвольная запись - горячий запрос быстро вернется в кэш, а на пути запроса нет блокировок.
+ */
+public class SqlParseCache {
+
+    private final int maxEntries;
+    private final ConcurrentHashMap<String, ParsedSql> entries;
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+
+    /**
+     * @param maxEntries максимальное количество разобранных запросов в кэше
+     */
+    public SqlParseCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Invalid parse cache size: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.entries = new ConcurrentHashMap<>();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+    }
+
+    /**
+     * Разобранный SQL из кэша или результат нового разбора.
+     */
+    public ParsedSql get(String sql) {
+        ParsedSql parsed = entries.get(sql);
+        if (parsed != null) {
+            hits.increment();
+            return parsed;
+        }
+
+        misses.increment();
+        parsed = ParsedSql.parse(sql);
+        if (entries.size() >= maxEntries) {
+            evictOne();
+        }
+        entries.putIfAbsent(sql, parsed);
+        return parsed;
+    }
+
+    private void evictOne() {
+        Iterator<String> keys = entries.keySet().iterator();
+        if (keys.hasNext()) {
+            keys.next();
+            keys.remove();
+            evictions.increment();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public CacheStats getStats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum());
+    }
+}
@@ -0,0 +1,94 @@
+package org.gulash.objectpool.factory.item;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кэш подготовленных statement одного соединения по тексту SQL (LRU ограниченного размера).
+ * <p>
+ * Подготовка (разбор и построение плана на сервере) выполняется один раз на соединение,
+ * повторные запросы с тем же текстом сразу выполняются. Кэш не потокобезопасен: соединение
+ * обращается к нему под своей блокировкой отправки запросов.
+ */
+public class StatementCache {
+
+    /**
+     * Что делать с подготовленными statement при возврате соединения в пул ({@code reset()}).
+     */
+    public enum ResetPolicy {
+        /** Очищать: следующий клиент начинает с пустого кэша (аналог DISCARD ALL) */
+        CLEAR,
+        /** Сохранять: подготовленные statement переживают смену клиента */
+        KEEP
+    }
+
+    private final int capacity;
+    private final ResetPolicy resetPolicy;
+    private final LinkedHashMap<String, ParsedSql> statements;
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+
+    /**
+     * @param capacity    максимальное количество подготовленных statement
+     * @param resetPolicy очищать ли кэш при возврате соединения в пул
+     */
+    public StatementCache(int capacity, ResetPolicy resetPolicy) {
+        if (capacity <= 0 || resetPolicy == null) {
+            throw new IllegalArgumentException("Invalid statement cache settings: capacity=" + capacity
+                + ", policy=" + resetPolicy);
+        }
+        this.capacity = capacity;
+        this.resetPolicy = resetPolicy;
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+        // accessOrder = true: порядок итерации - от давно не использованных к недавним
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ParsedSql> eldest) {
+                if (size() > StatementCache.this.capacity) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Подготовленный statement для SQL или null, если его нужно подготовить.
+     */
+    public ParsedSql get(String sql) {
+        ParsedSql statement = statements.get(sql);
+        if (statement != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return statement;
+    }
+
+    public void put(String sql, ParsedSql statement) {
+        statements.put(sql, statement);
+    }
+
+    /**
+     * Применить политику при возврате соединения в пул.
+     */
+    public void onReset() {
+        if (resetPolicy == ResetPolicy.CLEAR) {
+            statements.clear();
+        }
+    }
+
+    public int size() {
+        return statements.size();
+    }
+
+    public CacheStats getStats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum());
+    }
+}
@@ -0,0 +1,249 @@
+package org.gulash.objectpool.pool;
+
+import org.gulash.objectpool.pool.util.DaemonThreadFactory;
+import org.gulash.objectpool.pool.util.PoolStatistics;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Адаптивный регулятор размера {@link BlockingItemPool} по наблюдаемому ожиданию и загрузке.
+ * <p>
+ * ИДЕЯ:
+ * Фиксированный maxSize приходится подбирать под пиковую нагрузку, и ночью пул держит лишние объекты,
+ * а днем упирается в лимит. Регулятор раз в интервал смотрит на статистику пула за этот интервал
+ * и меняет maxSize в заданных границах по схеме AIMD (как управление перегрузкой в TCP):
+ * - Есть давление (тайм-ауты, ожидающие запросы или среднее ожидание выше цели) - аддитивное увеличение
+ * - Несколько интервалов подряд загрузка низкая и ожидания нет - мультипликативное уменьшение
+ * <p>
+ * Быстрый рост и осторожное сжатие (только после нескольких "спокойных" интервалов) не дают размеру
+ * раскачиваться. Границы и целевое ожидание можно менять во время работы, все решения сохраняются в журнал.
+ */
+public class AdaptivePoolSizer implements AutoCloseable {
+
+    /**
+     * Сколько последних решений хранится в журнале
+     */
+    private static final int MAX_DECISIONS = 100;
+
+    /**
+     * Сколько "спокойных" интервалов подряд нужно перед уменьшением размера
+     */
+    private static final int CALM_INTERVALS_BEFORE_SHRINK = 3;
+
+    /**
+     * Шаг аддитивного увеличения maxSize
+     */
+    private static final int INCREASE_STEP = 2;
+
+    /**
+     * Множитель мультипликативного уменьшения maxSize
+     */
+    private static final double DECREASE_FACTOR = 0.75;
+
+    /**
+     * Загрузка (inUse / maxSize), ниже которой интервал считается "спокойным"
+     */
+    private static final double LOW_UTILIZATION = 0.5;
+
+    private final BlockingItemPool<?> pool;
+    private final ScheduledExecutorService scheduler;
+    private final Deque<SizingDecision> decisions;
+
+    /**
+     * Шаг регулятора и смена границ не должны выполняться одновременно
+     */
+    private final ReentrantLock lock;
+
+    private volatile int lowerBound;
+    private volatile int upperBound;
+    private volatile long targetWaitMs;
+
+    // Значения счетчиков пула на начало интервала (меняются только под lock)
+    private long lastAcquires;
+    private long lastTimeouts;
+    private long lastWaitNanos;
+    private int calmIntervals;
+
+    /**
+     * Создать регулятор и запустить его.
+     *
+     * @param pool       регулируемый пул
+     * @param lowerBound нижняя граница maxSize
+     * @param upperBound верхняя граница maxSize
+     * @param intervalMs период пересчета размера в миллисекундах
+     */
+    public AdaptivePoolSizer(BlockingItemPool<?> pool, int lowerBound, int upperBound, long intervalMs) {
+        if (intervalMs <= 0) {
+            throw new IllegalArgumentException("Invalid sizing interval: " + intervalMs);
+        }
+        this.pool = pool;
+        this.decisions = new ConcurrentLinkedDeque<>();
+        this.lock = new ReentrantLock();
+        this.targetWaitMs = 10;
+        setBounds(lowerBound, upperBound);
+
+        PoolStatistics statistics = pool.getStatistics();
+        this.lastAcquires = statistics.getTotalAcquires();
+        this.lastTimeouts = statistics.getTimeoutCount();
+        this.lastWaitNanos = pool.getTotalWaitNanos();
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("object-pool-sizer"));
+        scheduler.scheduleWithFixedDelay(this::safeAdjust, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Изменить границы размера во время работы. Текущий maxSize сразу приводится в новые границы.
+     *
+     * @throws IllegalArgumentException если границы некорректны или нижняя меньше minSize пула
+     */
+    public void setBounds(int lowerBound, int upperBound) {
+        if (lowerBound <= 0 || upperBound < lowerBound || lowerBound < pool.getMinSize()) {
+            throw new IllegalArgumentException("Invalid sizing bounds: lower=" + lowerBound + ", upper=" + upperBound
+                + " (minSize=" + pool.getMinSize() + ")");
+        }
+        lock.lock();
+        try {
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+
+            int current = pool.getMaxSize();
+            int clamped = Math.max(lowerBound, Math.min(upperBound, current));
+            if (clamped != current) {
+                apply(current, clamped, 0, 0, 0, "изменены границы [" + lowerBound + ", " + upperBound + "]");
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Изменить целевое среднее время ожидания acquire: если за интервал оно выше цели, пул растет.
+     */
+    public void setTargetWaitMs(long targetWaitMs) {
+        if (targetWaitMs < 0) {
+            throw new IllegalArgumentException("Invalid target wait: " + targetWaitMs);
+        }
+        this.targetWaitMs = targetWaitMs;
+    }
+
+    /**
+     * Журнал последних решений регулятора (от старых к новым).
+     */
+    public List<SizingDecision> getDecisions() {
+        return new ArrayList<>(decisions);
+    }
+
+    private void safeAdjust() {
+        try {
+            adjust();
+        } catch (Exception e) {
+            // Исключение не должно остановить периодическую задачу
+            System.err.println("Ошибка регулятора размера пула: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Один шаг регулятора: оценить интервал с прошлого шага и при необходимости изменить maxSize.
+     * Вызывается по расписанию; может быть вызван и вручную.
+     *
+     * @return принятое решение или null, если размер не изменился
+     */
+    public SizingDecision adjust() {
+        lock.lock();
+        try {
+            return evaluateInterval();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private SizingDecision evaluateInterval() {
+        PoolStatistics statistics = pool.getStatistics();
+        long waitNanos = pool.getTotalWaitNanos();
+        long acquires = statistics.getTotalAcquires() - lastAcquires;
+        long timeouts = statistics.getTimeoutCount() - lastTimeouts;
+        long avgWaitMs = acquires > 0 ? TimeUnit.NANOSECONDS.toMillis((waitNanos - lastWaitNanos) / acquires) : 0;
+        lastAcquires = statistics.getTotalAcquires();
+        lastTimeouts = statistics.getTimeoutCount();
+        lastWaitNanos = waitNanos;
+
+        int current = pool.getMaxSize();
+        int inUse = statistics.getInUseObjects();
+        int waiting = pool.getWaitingCount();
+        double utilization = (double) inUse / current;
+
+        // Аддитивное увеличение: запросам не хватает объектов
+        if (timeouts > 0 || waiting > 0 || avgWaitMs > targetWaitMs) {
+            calmIntervals = 0;
+            if (current < upperBound) {
+                return apply(current, Math.min(upperBound, current + INCREASE_STEP), utilization, avgWaitMs, timeouts,
+                    "давление: тайм-аутов " + timeouts + ", ожидающих " + waiting
+                        + ", среднее ожидание " + avgWaitMs + "ms (цель " + targetWaitMs + "ms)");
+            }
+            return null;
+        }
+
+        // Мультипликативное уменьшение: несколько интервалов подряд пул загружен меньше чем наполовину
+        if (utilization < LOW_UTILIZATION && ++calmIntervals >= CALM_INTERVALS_BEFORE_SHRINK) {
+            calmIntervals = 0;
+            int target = Math.max(lowerBound, Math.max(inUse + 1, (int) (current * DECREASE_FACTOR)));
+            if (target < current) {
+                return apply(current, target, utilization, avgWaitMs, timeouts,
+                    "низкая загрузка " + Math.round(utilization * 100) + "% " + CALM_INTERVALS_BEFORE_SHRINK + " интервала подряд");
+            }
+        } else if (utilization >= LOW_UTILIZATION) {
+            calmIntervals = 0;
+        }
+        return null;
+    }
+
+    private SizingDecision apply(int oldMaxSize, int newMaxSize, double utilization, long avgWaitMs, long timeouts,
+                                 String reason) {
+        // maxSize пула не может опуститься ниже его minSize
+        int target = Math.max(newMaxSize, pool.getMinSize());
+        if (target == oldMaxSize) {
+            return null;
+        }
+        pool.setMaxSize(target);
+
+        SizingDecision decision = new SizingDecision(System.currentTimeMillis(), oldMaxSize, target,
+            utilization, avgWaitMs, timeouts, reason);
+        decisions.addLast(decision);
+        while (decisions.size() > MAX_DECISIONS) {
+            decisions.pollFirst();
+        }
+        System.out.println("⚙ " + decision);
+        return decision;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Решение регулятора: когда, с какого и на какой maxSize, и на основании каких наблюдений.
+     *
+     * @param timestamp   время решения (System.currentTimeMillis)
+     * @param oldMaxSize  maxSize до решения
+     * @param newMaxSize  maxSize после решения
+     * @param utilization доля выданных объектов от maxSize в момент решения
+     * @param avgWaitMs   среднее ожидание acquire за интервал
+     * @param timeouts    тайм-аутов acquire за интервал
+     * @param reason      причина решения
+     */
+    public record SizingDecision(long timestamp, int oldMaxSize, int newMaxSize, double utilization,
+                                 long avgWaitMs, long timeouts, String reason) {
+        @Override
+        public String toString() {
+            return "Размер пула " + oldMaxSize + " -> " + newMaxSize + " (" + reason + ")";
+        }
+    }
+}
@@ -1,10 +1,25 @@
 package org.gulash.objectpool.pool;
 
 import org.gulash.objectpool.factory.*;
+import org.gulash.objectpool.pool.config.PoolConfig;
+import org.gulash.objectpool.pool.config.ValidationStrategy;
+import org.gulash.objectpool.pool.metrics.BlockingItemPoolMetrics;
+import org.gulash.objectpool.pool.util.DaemonThreadFactory;
+import org.gulash.objectpool.pool.util.LatencyHistogram;
 import org.gulash.objectpool.pool.util.PoolStatistics;
 
+import javax.management.ObjectName;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Thread-safe реализация пула объектов с использованием BlockingQueue.
@@ -13,8 +28,30 @@ import java.util.concurrent.atomic.*;
  * - Потокобезопасная
  * - Поддержка тайм-аутов
  * - Автоматическое создание объектов при необходимости
- * - Валидация объектов
+ * - Валидация объектов по стратегии (см. {@link ValidationStrategy}): при выдаче, при выдаче после простоя,
+ *   при возврате или в фоне
  * - Сбор статистики
+ * - Опциональная привязка к потоку (thread affinity, см. {@link PoolConfig#isThreadAffinity()})
+ * - Опциональная справедливая FIFO-передача объектов ожидающим потокам (см. {@link PoolConfig#isFairHandoff()}).
+ *   Порядок соблюдается внутри синхронных и внутри асинхронных запросов, но не между ними: освободившийся
+ *   объект сначала получает самый давний асинхронный запрос, а синхронные потоки - только если таких нет
+ * - Неблокирующий {@link #acquireAsync(Duration)}: ожидающие future завершаются прямо в release
+ * - Без мониторов (synchronized): рост пула через CAS-резервирование, объекты создаются параллельно.
+ *   Это важно для виртуальных потоков (JDK 21) - долгий factory.create не "прикалывает" поток-носитель.
+ * - Опциональное фоновое обслуживание (см. {@link PoolConfig#getMinIdle()}): прогрев minIdle свободных объектов,
+ *   асинхронная замена уничтоженных и заблаговременная замена "стареющих" объектов
+ * - Вытеснение простаивающих объектов (idle timeout), ограничение времени жизни (max lifetime)
+ *   и обнаружение утечек - объектов, удерживаемых клиентом дольше порога
+ * - Пакетный захват {@link #acquireAll(int, Duration)} по принципу "все или ничего"
+ * - Lock-free гистограммы задержек (ожидание, удержание, создание, валидация) с перцентилями
+ * - Метрики в JMX (см. {@link BlockingItemPoolMetrics}), регистрация снимается при закрытии пула
+ * - Опциональный предохранитель создания (см. {@link CreationCircuitBreaker}): при недоступности ресурса
+ *   создание приостанавливается с экспоненциальным откатом, и восстановление проверяет один поток
+ * - Изменение minSize/maxSize во время работы: при уменьшении лимита лишние объекты уничтожаются
+ *   по мере освобождения (см. {@link AdaptivePoolSizer})
+ * - Метрики насыщения: число ожидающих запросов, распределение времени в очереди ожидания и счетчик отказов.
+ *   Опционально очередь ожидающих ограничена (см. {@link PoolConfig#getMaxWaiters()}): запрос сверх лимита
+ *   сразу получает {@link RejectedExecutionException} вместо ожидания тайм-аута
  * <p>
  * BEST PRACTICES:
  * - Используйте try-with-resources или явный release в finally
@@ -24,13 +61,49 @@ import java.util.concurrent.atomic.*;
  */
 public class BlockingItemPool<T> implements ItemPool<T> {
 
+    /**
+     * Общий для всех пулов исполнитель для создания объектов по асинхронным запросам.
+     * Создание может быть долгим (100-500ms для DatabaseConnection), поэтому оно не выполняется
+     * ни в потоке клиента, ни в общем ForkJoinPool.
+     */
+    private static final Executor CREATION_EXECUTOR =
+        Executors.newCachedThreadPool(new DaemonThreadFactory("object-pool-creator"));
+
+    /**
+     * Как часто ожидающий поток перепроверяет возможность создать объект: место может освободиться
+     * в другом пуле (общий бюджет), а создание - восстановиться после сбоя (предохранитель)
+     */
+    private static final long CREATION_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * Справедливый режим: выполняется ли фоновое повторение создания для ожидающих потоков
+     */
+    private final AtomicBoolean creationRetrying;
+
+    /**
+     * Счетчик для автоматических имен пулов (pool-1, pool-2, ...)
+     */
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger(0);
+
+    /**
+     * Имя пула для мониторинга
+     */
+    private final String name;
+
+    /**
+     * Имя зарегистрированного MXBean (null, если JMX выключен или регистрация не удалась)
+     */
+    private final ObjectName jmxName;
+
     /**
      * Фабрика для создания и управления объектами пула
      */
     private final ItemFactory<T> factory;
 
     /**
-     * Очередь доступных для использования объектов (thread-safe)
+     * Очередь доступных для использования объектов (thread-safe).
+     * В справедливом режиме - {@link LinkedTransferQueue}: release передает объект напрямую
+     * самому давно ожидающему потоку, новые потоки не могут его перехватить.
      */
     private final BlockingQueue<T> availableObjects;
 
@@ -40,20 +113,129 @@ public class BlockingItemPool<T> implements ItemPool<T> {
     private final ConcurrentHashMap<T, Long> inUseObjects;
 
     /**
-     * Минимальное количество объектов, которое должно быть создано при инициализации пула
+     * Жизненный цикл всех созданных объектов (время создания, последнего возврата, место взятия из пула)
+     */
+    private final ConcurrentHashMap<T, ItemLifecycle> lifecycles;
+
+    /**
+     * Справедливый режим: объекты выдаются ожидающим потокам строго в порядке очереди
+     */
+    private final boolean fairHandoff;
+
+    /**
+     * Режим привязки к потоку: последний возвращенный потоком объект остается у этого потока
+     */
+    private final boolean threadAffinity;
+
+    /**
+     * Thread-local слот с последним возвращенным этим потоком объектом (только в режиме threadAffinity)
+     */
+    private final ThreadLocal<T> affinitySlot;
+
+    /**
+     * Объекты, "запаркованные" в thread-local слотах. Объект принадлежит тому,
+     * кто первым удалил его из этого множества: владельцу слота или "ворующему" потоку.
+     */
+    private final Set<T> parkedObjects;
+
+    /**
+     * Количество потоков, ожидающих освобождения объекта в очереди
+     */
+    private final AtomicInteger waitingThreads;
+
+    /**
+     * Асинхронные запросы, ожидающие объект (FIFO). Завершаются в release, без "парковки" потоков.
+     */
+    private final Queue<AsyncWaiter<T>> asyncWaiters;
+
+    /**
+     * Сколько свободных объектов фоновое обслуживание держит наготове
+     */
+    private final int minIdle;
+
+    /**
+     * Поток фонового обслуживания пула (null, если обслуживание выключено)
+     */
+    private final ScheduledExecutorService maintenance;
+
+    /**
+     * Количество объектов, создаваемых в фоне прямо сейчас (учитываются при расчете дефицита minIdle)
+     */
+    private final AtomicInteger replenishing;
+
+    /**
+     * Через сколько миллисекунд простоя свободный объект вытесняется (0 - не вытеснять)
+     */
+    private final long idleTimeoutMs;
+
+    /**
+     * Максимальное время жизни объекта в миллисекундах (0 - без ограничения)
+     */
+    private final long maxLifetimeMs;
+
+    /**
+     * Порог удержания объекта клиентом, после которого сообщается о возможной утечке (0 - не отслеживать)
+     */
+    private final long leakDetectionThresholdMs;
+
+    /**
+     * Доля acquire, для которых сохраняется стек вызова (захват стека недешев, поэтому его можно сэмплировать)
+     */
+    private final double leakTraceSampleRate;
+
+    /**
+     * Когда проверять объекты через factory.validate
      */
-    private final int minSize;
+    private final ValidationStrategy validationStrategy;
 
     /**
-     * Максимальное количество объектов, которое может существовать одновременно
+     * Для стратегии IF_IDLE: объекты, простаивавшие меньше этого времени, выдаются без проверки
      */
-    private final int maxSize;
+    private final long validationIdleThresholdMs;
+
+    /**
+     * Справедливая блокировка пакетных захватов: пакеты набираются по очереди, поэтому два задания
+     * не могут взять по "половине" пула и бесконечно ждать друг друга
+     */
+    private final ReentrantLock bulkLock;
+
+    /**
+     * Минимальное количество объектов, которое должно быть создано при инициализации пула.
+     * Может меняться во время работы (см. {@link #setMinSize(int)}).
+     */
+    private volatile int minSize;
+
+    /**
+     * Максимальное количество объектов, которое может существовать одновременно.
+     * Может меняться во время работы (см. {@link #setMaxSize(int)}, {@link AdaptivePoolSizer}).
+     */
+    private volatile int maxSize;
 
     /**
      * Текущее общее количество созданных объектов (свободные + используемые)
      */
     private final AtomicInteger currentSize;
 
+    /**
+     * Общий с другими пулами лимит объектов (null - ограничен только maxSize)
+     */
+    private final CapacityBudget capacityBudget;
+
+    /**
+     * Предохранитель создания объектов (null - выключен)
+     */
+    private final CreationCircuitBreaker creationBreaker;
+
+    /**
+     * При разомкнутом предохранителе и отсутствии свободных объектов acquire сразу бросает исключение
+     */
+    private final boolean failFastOnCreationOutage;
+
+    /**
+     * Сколько запросов могут одновременно ждать освобождения объекта (0 - без ограничения)
+     */
+    private final int maxWaiters;
+
     /**
      * Флаг состояния пула (false - работает, true - закрыт)
      */
@@ -77,10 +259,40 @@ public class BlockingItemPool<T> implements ItemPool<T> {
     private final AtomicLong timeoutCount;
 
     /**
-     * Суммарное время ожидания получения объектов (в миллисекундах)
+     * Количество запросов, отклоненных без ожидания из-за переполненной очереди ожидающих
+     */
+    private final AtomicLong rejectedCount;
+
+    /**
+     * Суммарное время ожидания получения объектов (в наносекундах)
      */
     private final AtomicLong totalWaitTime;
 
+    /**
+     * Распределение времени ожидания в acquire
+     */
+    private final LatencyHistogram acquireWaitHistogram;
+
+    /**
+     * Распределение времени удержания объекта клиентом (от выдачи до возврата)
+     */
+    private final LatencyHistogram holdTimeHistogram;
+
+    /**
+     * Распределение времени создания объекта фабрикой
+     */
+    private final LatencyHistogram createTimeHistogram;
+
+    /**
+     * Распределение времени валидации объекта фабрикой
+     */
+    private final LatencyHistogram validateTimeHistogram;
+
+    /**
+     * Распределение времени в очереди ожидающих (только для запросов, которым пришлось ждать)
+     */
+    private final LatencyHistogram queueTimeHistogram;
+
     /**
      * Создать пул с заданными параметрами.
      *
@@ -89,36 +301,116 @@ public class BlockingItemPool<T> implements ItemPool<T> {
      * @param maxSize максимальное количество объектов
      */
     public BlockingItemPool(ItemFactory<T> factory, int minSize, int maxSize) {
-        if (minSize < 0 || maxSize < minSize) {
-            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
-        }
+        this(factory, new PoolConfig.Builder(minSize, maxSize).build());
+    }
+
+    /**
+     * Создать пул с расширенными настройками.
+     *
+     * @param factory фабрика для создания объектов
+     * @param config  настройки пула (размеры и дополнительные режимы)
+     */
+    public BlockingItemPool(ItemFactory<T> factory, PoolConfig config) {
+        this(factory, config, null);
+    }
 
+    /**
+     * Создать пул, который делит общий лимит объектов с другими пулами (см. {@link KeyedItemPool}).
+     *
+     * @param factory        фабрика для создания объектов
+     * @param config         настройки пула (размеры и дополнительные режимы)
+     * @param capacityBudget общий лимит объектов или null
+     */
+    BlockingItemPool(ItemFactory<T> factory, PoolConfig config, CapacityBudget capacityBudget) {
         this.factory = factory;
-        this.minSize = minSize;
-        this.maxSize = maxSize;
+        this.name = config.getPoolName() != null ? config.getPoolName() : "pool-" + POOL_COUNTER.incrementAndGet();
+        this.capacityBudget = capacityBudget;
+        this.minSize = config.getMinSize();
+        this.maxSize = config.getMaxSize();
         this.currentSize = new AtomicInteger(0);
         this.closed = new AtomicBoolean(false);
-        this.availableObjects = new LinkedBlockingQueue<>();
+        this.creationRetrying = new AtomicBoolean(false);
+        this.fairHandoff = config.isFairHandoff();
+        this.availableObjects = fairHandoff ? new LinkedTransferQueue<>() : new LinkedBlockingQueue<>();
+        this.threadAffinity = config.isThreadAffinity();
+        this.affinitySlot = new ThreadLocal<>();
+        this.parkedObjects = ConcurrentHashMap.newKeySet();
+        this.waitingThreads = new AtomicInteger(0);
+        this.asyncWaiters = new ConcurrentLinkedQueue<>();
+        this.minIdle = config.getMinIdle();
+        this.replenishing = new AtomicInteger(0);
+        this.lifecycles = new ConcurrentHashMap<>();
+        this.idleTimeoutMs = config.getIdleTimeoutMs();
+        this.maxLifetimeMs = config.getMaxLifetimeMs();
+        this.leakDetectionThresholdMs = config.getLeakDetectionThresholdMs();
+        this.leakTraceSampleRate = config.getLeakTraceSampleRate();
+        this.bulkLock = new ReentrantLock(true);
+        this.creationBreaker = config.getCreationFailureThreshold() > 0
+            ? new CreationCircuitBreaker(config.getCreationFailureThreshold(),
+                config.getCreationBackoffMs(), config.getCreationMaxBackoffMs())
+            : null;
+        this.failFastOnCreationOutage = config.isFailFastOnCreationOutage();
+        this.maxWaiters = config.getMaxWaiters();
+        this.validationStrategy = config.getValidationStrategy();
+        this.validationIdleThresholdMs = config.getValidationIdleThresholdMs();
 
         this.totalAcquires = new AtomicLong(0);
         this.totalReleases = new AtomicLong(0);
         this.timeoutCount = new AtomicLong(0);
+        this.rejectedCount = new AtomicLong(0);
         this.inUseObjects = new ConcurrentHashMap<>();
         this.totalWaitTime = new AtomicLong(0);
+        this.acquireWaitHistogram = new LatencyHistogram();
+        this.holdTimeHistogram = new LatencyHistogram();
+        this.createTimeHistogram = new LatencyHistogram();
+        this.validateTimeHistogram = new LatencyHistogram();
+        this.queueTimeHistogram = new LatencyHistogram();
 
         // Eager initialization - создаем минимальное количество объектов
         initializeMinObjects();
+
+        // Фоновое обслуживание: прогрев, замена уничтоженных и "стареющих" объектов, вытеснение, поиск утечек
+        if (minIdle > 0 || idleTimeoutMs > 0 || maxLifetimeMs > 0 || leakDetectionThresholdMs > 0
+            || validationStrategy == ValidationStrategy.BACKGROUND) {
+            this.maintenance = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("object-pool-maintenance"));
+            maintenance.scheduleWithFixedDelay(this::runMaintenance,
+                0, config.getMaintenanceIntervalMs(), TimeUnit.MILLISECONDS);
+        } else {
+            this.maintenance = null;
+        }
+
+        // Метрики пула в JMX (JConsole, VisualVM, JMX-экспортеры)
+        this.jmxName = config.isJmxEnabled() ? BlockingItemPoolMetrics.register(this) : null;
     }
 
     private void initializeMinObjects() {
-        for (int i = 0; i < minSize; i++) {
+        // Объекты создаются параллельно: инициализация занимает время одного создания, а не minSize.
+        // При общем бюджете создается столько, сколько в нем осталось места.
+        int reserved = tryReserveSlots(minSize);
+        CompletableFuture<?>[] creations = new CompletableFuture<?>[reserved];
+        for (int i = 0; i < reserved; i++) {
+            creations[i] = CompletableFuture.runAsync(() -> availableObjects.offer(newObject()), CREATION_EXECUTOR);
+        }
+
+        // Дожидаемся всех созданий, а не первой ошибки: иначе уже созданные объекты остались бы неуничтоженными
+        RuntimeException failure = null;
+        for (CompletableFuture<?> creation : creations) {
             try {
-                T object = factory.create(this);
-                availableObjects.offer(object);
-                currentSize.incrementAndGet();
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to initialize pool", e);
+                creation.join();
+            } catch (CompletionException e) {
+                // Место неудавшегося создания возвращаем в пул и в общий бюджет
+                releaseSlot();
+                if (failure == null) {
+                    failure = new RuntimeException("Failed to initialize pool", e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            T object;
+            while ((object = availableObjects.poll()) != null) {
+                destroyObject(object);
             }
+            throw failure;
         }
     }
 
@@ -128,47 +420,801 @@ public class BlockingItemPool<T> implements ItemPool<T> {
             throw new IllegalStateException("Пул закрыт");
         }
 
-        long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        // Дедлайн считаем в наносекундах: при повторах после неудачной валидации остаток тайм-аута не "плывет"
+        long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
         totalAcquires.incrementAndGet();
 
-        // 1. Пытаемся взять готовый объект из очереди
-        T object = availableObjects.poll(timeoutMs, TimeUnit.MILLISECONDS);
-
-        // 2. Если объектов нет, но мы еще не достигли лимита - пробуем создать новый
-        if (object == null && currentSize.get() < maxSize) {
-            synchronized (this) {
-                if (currentSize.get() < maxSize) {
-                    object = factory.create(this);
-                    currentSize.incrementAndGet();
-                    finalizeAcquire(object, startTime);
-                    return object;
+        // 0. Быстрый путь режима привязки: объект, который этот же поток вернул последним
+        if (threadAffinity) {
+            T parked = takeFromAffinitySlot();
+            if (parked != null) {
+                if (validateOnBorrow(parked)) {
+                    finalizeAcquire(parked, startNanos);
+                    return parked;
                 }
+                destroyObject(parked);
             }
         }
 
-        // 3. Если мы здесь, значит либо получили объект из очереди, либо очередь пуста и лимит достигнут
-        if (object == null) {
-            // Если вышли по тайм-ауту (вторичное ожидание не требуется, poll уже подождал timeoutMs)
+        return acquireUntil(deadline, startNanos);
+    }
+
+    @Override
+    public CompletableFuture<T> acquireAsync(Duration timeout) {
+        if (closed.get()) {
+            throw new IllegalStateException("Пул закрыт");
+        }
+
+        long startNanos = System.nanoTime();
+        totalAcquires.incrementAndGet();
+
+        // 1. Есть готовый объект и нет более ранних асинхронных запросов - завершаем future сразу
+        if (asyncWaiters.isEmpty()) {
+            T object;
+            while ((object = availableObjects.poll()) != null) {
+                if (validateOnBorrow(object)) {
+                    finalizeAcquire(object, startNanos);
+                    return CompletableFuture.completedFuture(object);
+                }
+                destroyObject(object);
+            }
+        }
+
+        // 2. Встаем в очередь ожидающих. Тайм-аут обслуживает общий таймер CompletableFuture,
+        // поэтому ни один поток не блокируется на время ожидания.
+        // Если создать объект уже нельзя, а очередь ожидающих заполнена - отклоняем запрос сразу.
+        if (maxWaiters > 0 && currentSize.get() >= maxSize && getWaitingCount() >= maxWaiters) {
+            return CompletableFuture.failedFuture(rejection());
+        }
+        AsyncWaiter<T> waiter = new AsyncWaiter<>(new CompletableFuture<>(), startNanos);
+        asyncWaiters.offer(waiter);
+        waiter.future()
+            .orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS)
+            .whenComplete((object, error) -> {
+                if (error instanceof TimeoutException) {
+                    asyncWaiters.remove(waiter);
+                    timeoutCount.incrementAndGet();
+                    queueTimeHistogram.record(System.nanoTime() - waiter.startNanos());
+                }
+            });
+
+        // 3. Повторная проверка после регистрации: release мог вернуть объект в очередь, еще не видя нас
+        T object = availableObjects.poll();
+        if (object == null && threadAffinity) {
+            object = stealParked();
+        }
+        if (object != null) {
+            offerAvailable(object);
+        }
+
+        // 4. Если лимит не достигнут - создаем объект в фоне и передаем его первому ожидающему
+        if (currentSize.get() < maxSize) {
+            CREATION_EXECUTOR.execute(this::createForAsyncWaiters);
+        }
+
+        return waiter.future();
+    }
+
+    private void createForAsyncWaiters() {
+        if (asyncWaiters.isEmpty()) {
+            return;
+        }
+        try {
+            T created = createIfBelowMax();
+            if (created != null) {
+                offerAvailable(created);
+            }
+        } catch (RuntimeException e) {
+            // Ошибку создания получает самый давний асинхронный запрос
+            AsyncWaiter<T> waiter = asyncWaiters.poll();
+            if (waiter != null) {
+                waiter.future().completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Передать объект самому давнему асинхронному запросу.
+     *
+     * @return true, если объект передан (или уничтожен как невалидный), false - если ожидающих нет
+     */
+    private boolean handOffToAsyncWaiter(T object) {
+        if (asyncWaiters.isEmpty()) {
+            return false;
+        }
+
+        if (!validateOnBorrow(object)) {
+            destroyObject(object);
+            CREATION_EXECUTOR.execute(this::createForAsyncWaiters);
+            return true;
+        }
+
+        AsyncWaiter<T> waiter;
+        while ((waiter = asyncWaiters.poll()) != null) {
+            // Объект помечается выданным до завершения future: callback клиента может сразу вызвать release
+            markInUse(object);
+            if (waiter.future().complete(object)) {
+                long waitNanos = System.nanoTime() - waiter.startNanos();
+                totalWaitTime.addAndGet(waitNanos);
+                acquireWaitHistogram.record(waitNanos);
+                queueTimeHistogram.record(waitNanos);
+                return true;
+            }
+            // Запрос уже завершился по тайм-ауту - пробуем следующий
+            inUseObjects.remove(object);
+        }
+        return false;
+    }
+
+    @Override
+    public List<T> acquireAll(int n, Duration timeout) throws InterruptedException {
+        if (n <= 0 || n > maxSize) {
+            throw new IllegalArgumentException("Invalid batch size: " + n + " (max=" + maxSize + ")");
+        }
+        if (closed.get()) {
+            throw new IllegalStateException("Пул закрыт");
+        }
+
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + timeout.toNanos();
+        totalAcquires.addAndGet(n);
+
+        if (!bulkLock.tryLock(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
             timeoutCount.incrementAndGet();
+            return Collections.emptyList();
+        }
+
+        List<T> batch = new ArrayList<>(n);
+        boolean complete = false;
+        try {
+            while (batch.size() < n) {
+                // 1. Забираем свободные объекты одной операцией над очередью
+                List<T> drained = new ArrayList<>(n - batch.size());
+                availableObjects.drainTo(drained, n - batch.size());
+                for (T object : drained) {
+                    addIfValid(batch, object);
+                }
+
+                // 2. Для недостающих резервируем места одним CAS и создаем объекты параллельно
+                createBatch(batch, n - batch.size());
+
+                // 3. Лимит достигнут - ждем освобождения объектов до дедлайна
+                if (batch.size() < n) {
+                    enterWaiting();
+                    long queuedAt = System.nanoTime();
+                    T object;
+                    try {
+                        object = pollAvailable(deadline - System.nanoTime());
+                    } finally {
+                        leaveWaiting(queuedAt);
+                    }
+                    if (object == null) {
+                        timeoutCount.incrementAndGet();
+                        return Collections.emptyList();
+                    }
+                    addIfValid(batch, object);
+                }
+            }
+
+            for (T object : batch) {
+                finalizeAcquire(object, startNanos);
+            }
+            complete = true;
+            return batch;
+        } finally {
+            bulkLock.unlock();
+            if (!complete) {
+                // "Все или ничего": частично набранный пакет возвращается в пул
+                for (T object : batch) {
+                    offerAvailable(object);
+                }
+            }
+        }
+    }
+
+    private void addIfValid(List<T> batch, T object) {
+        if (validateOnBorrow(object)) {
+            batch.add(object);
+        } else {
+            destroyObject(object);
+            requestReplenish(1);
+        }
+    }
+
+    /**
+     * Создать до count объектов параллельно, зарезервировав места в пуле одной CAS-операцией.
+     * Если какое-то создание не удалось, ошибка пробрасывается после завершения остальных.
+     */
+    private void createBatch(List<T> batch, int count) {
+        int reserved = tryReserveSlots(count);
+        int permitted = creationBreaker == null ? reserved : creationBreaker.permitCreations(reserved);
+        for (int i = permitted; i < reserved; i++) {
+            // Предохранитель разомкнут - места, на которые создание не разрешено, освобождаем
+            releaseSlot();
+        }
+        reserved = permitted;
+        if (reserved == 0) {
+            return;
+        }
+
+        List<CompletableFuture<T>> creations = new ArrayList<>(reserved);
+        for (int i = 0; i < reserved; i++) {
+            creations.add(CompletableFuture.supplyAsync(this::newObject, CREATION_EXECUTOR));
+        }
+
+        RuntimeException failure = null;
+        for (CompletableFuture<T> creation : creations) {
+            try {
+                batch.add(creation.join());
+            } catch (CompletionException e) {
+                releaseSlot();
+                failure = e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private T acquireUntil(long deadline, long startNanos) throws InterruptedException {
+        // Повтор после неудачной валидации - итеративный и ограниченный. Каждая неудача уничтожает объект,
+        // поэтому за maxSize + 1 попыток старые объекты заканчиваются: если невалидны и новые, ресурс неисправен.
+        int maxAttempts = maxSize + 1;
+        for (int attempt = 1; ; attempt++) {
+            // 1. Пытаемся взять готовый объект из очереди без ожидания.
+            // В справедливом режиме, пока есть ожидающие потоки, poll() ничего не вернет - все объекты передаются им напрямую.
+            T object = availableObjects.poll();
+
+            // 2. Свободных нет, но лимит не достигнут - создаем новый объект сразу, не дожидаясь освобождения чужих.
+            // В справедливом режиме не обгоняем ожидающих: создаем, только если очередь ожидающих пуста.
+            if (object == null && (!fairHandoff || !((TransferQueue<T>) availableObjects).hasWaitingConsumer())) {
+                T created = createIfBelowMax();
+                if (created != null) {
+                    finalizeAcquire(created, startNanos);
+                    return created;
+                }
+            }
+
+            // Ресурс недоступен, а свободных объектов нет - по настройке не ждем, а сразу сообщаем об ошибке
+            if (object == null && failFastOnCreationOutage && creationBreaker != null
+                && creationBreaker.getState() != CreationCircuitBreaker.State.CLOSED) {
+                throw new IllegalStateException("Создание объектов приостановлено после ошибок, свободных объектов нет");
+            }
+
+            if (object == null) {
+                // 3. Лимит достигнут - встаем в очередь ожидающих (или сразу получаем отказ, если она заполнена)
+                enterWaiting();
+                long queuedAt = System.nanoTime();
+                // При общем бюджете место может освободиться в другом пуле, а при предохранителе - восстановиться
+                // создание, поэтому создание нужно повторять. Обычный поток ждет короткими интервалами и повторяет сам.
+                // В справедливом режиме повторный poll поставил бы поток в конец очереди, поэтому он ждет весь срок,
+                // а создает фоновая задача и передает объект первому в очереди.
+                boolean retryCreation = capacityBudget != null || creationBreaker != null;
+                if (retryCreation && fairHandoff) {
+                    startCreationRetry();
+                }
+                try {
+                    // Место могло освободиться после шага 2, пока нас еще не было среди ожидающих: уничтоживший объект
+                    // поток тогда не создал замену. Он уменьшает currentSize до проверки ожидающих, а мы проверяем
+                    // currentSize после входа в очередь, поэтому освободившееся место увидит хотя бы один из нас.
+                    if (currentSize.get() < maxSize
+                        && (!fairHandoff || !((TransferQueue<T>) availableObjects).hasWaitingConsumer())) {
+                        T created = createIfBelowMax();
+                        if (created != null) {
+                            finalizeAcquire(created, startNanos);
+                            return created;
+                        }
+                    }
+                    while (object == null) {
+                        long remaining = deadline - System.nanoTime();
+                        object = pollAvailable(retryCreation && !fairHandoff
+                            ? Math.min(remaining, CREATION_RETRY_NANOS) : remaining);
+
+                        // 4. За время ожидания место могло освободиться (объект уничтожен) - пробуем создать новый
+                        if (object == null && currentSize.get() < maxSize) {
+                            T created = createIfBelowMax();
+                            if (created != null) {
+                                finalizeAcquire(created, startNanos);
+                                return created;
+                            }
+                        }
+
+                        if (object == null && deadline - System.nanoTime() <= 0) {
+                            break;
+                        }
+                    }
+                } finally {
+                    leaveWaiting(queuedAt);
+                }
+            }
+
+            // 5. Если мы здесь, значит либо получили объект из очереди, либо очередь пуста и лимит достигнут
+            if (object == null) {
+                // Если вышли по тайм-ауту (вторичное ожидание не требуется, poll уже подождал до дедлайна)
+                timeoutCount.incrementAndGet();
+                return null;
+            }
+
+            // 6. Валидация объекта перед выдачей (по стратегии валидации)
+            if (validateOnBorrow(object)) {
+                finalizeAcquire(object, startNanos);
+                return object;
+            }
+            destroyObject(object);
+            requestReplenish(1);
+            if (attempt >= maxAttempts) {
+                throw new IllegalStateException("Не удалось получить валидный объект за " + attempt + " попыток подряд");
+            }
+            // Пытаемся получить другой объект в пределах того же дедлайна
+        }
+    }
+
+    private void startCreationRetry() {
+        if (creationRetrying.compareAndSet(false, true)) {
+            CREATION_EXECUTOR.execute(this::retryCreationForWaiters);
+        }
+    }
+
+    /**
+     * Пока в справедливом режиме есть ожидающие потоки, периодически пытаться создать объект и передать его
+     * первому в очереди. Создаем, только если кто-то действительно ждет в poll, чтобы не создавать лишних.
+     */
+    private void retryCreationForWaiters() {
+        do {
+            try {
+                while (!closed.get() && waitingThreads.get() > 0) {
+                    T created = null;
+                    if (((TransferQueue<T>) availableObjects).hasWaitingConsumer()) {
+                        try {
+                            created = createIfBelowMax();
+                        } catch (RuntimeException e) {
+                            // Ошибку уже учел предохранитель: ожидающие дождутся восстановления или тайм-аута
+                            System.err.println("Ошибка создания объекта для ожидающих: " + e.getMessage());
+                        }
+                    }
+                    if (created != null) {
+                        offerAvailable(created);
+                    } else {
+                        LockSupport.parkNanos(CREATION_RETRY_NANOS);
+                    }
+                }
+            } finally {
+                creationRetrying.set(false);
+            }
+            // Поток мог встать в очередь после последней проверки, но до сброса флага
+        } while (!closed.get() && waitingThreads.get() > 0 && creationRetrying.compareAndSet(false, true));
+    }
+
+    /**
+     * Создать новый объект, если лимит maxSize еще не достигнут.
+     * Место в пуле резервируется через CAS, а сам factory.create выполняется без каких-либо блокировок,
+     * поэтому несколько потоков могут создавать объекты параллельно (в пределах maxSize).
+     *
+     * @return новый объект или null, если пул уже достиг максимального размера
+     */
+    private T createIfBelowMax() {
+        if (!tryReserveSlot()) {
+            return null;
+        }
+        if (creationBreaker != null && !creationBreaker.allowCreation()) {
+            // Предохранитель разомкнут (или пробу уже выполняет другой поток) - не создаем
+            releaseSlot();
+            return null;
+        }
+        try {
+            return newObject();
+        } catch (RuntimeException e) {
+            // Создание не удалось - освобождаем зарезервированное место
+            releaseSlot();
+            throw e;
+        }
+    }
+
+    private boolean tryReserveSlot() {
+        return tryReserveSlots(1) == 1;
+    }
+
+    /**
+     * Зарезервировать до count мест в пуле одной CAS-операцией (и в общем бюджете, если он задан).
+     *
+     * @return сколько мест удалось зарезервировать (0, если пул или бюджет уже исчерпаны)
+     */
+    private int tryReserveSlots(int count) {
+        int size;
+        int reserved;
+        do {
+            size = currentSize.get();
+            reserved = Math.min(count, maxSize - size);
+            if (reserved <= 0) {
+                return 0;
+            }
+        } while (!currentSize.compareAndSet(size, size + reserved));
+
+        if (capacityBudget != null) {
+            int granted = capacityBudget.tryAcquire(this, reserved);
+            if (granted < reserved) {
+                // Бюджет дал меньше мест, чем пул - лишнее резервирование отменяем
+                currentSize.addAndGet(granted - reserved);
+                reserved = granted;
+            }
+        }
+        return reserved;
+    }
+
+    /**
+     * Освободить место уничтоженного (или так и не созданного) объекта.
+     */
+    private void releaseSlot() {
+        currentSize.decrementAndGet();
+        if (capacityBudget != null) {
+            capacityBudget.release(1);
+        }
+    }
+
+    /**
+     * Взять объект из очереди свободных, ожидая не дольше timeoutNanos.
+     * В режиме привязки перед ожиданием пробуем "украсть" объект, запаркованный другим потоком.
+     */
+    private T pollAvailable(long timeoutNanos) throws InterruptedException {
+        if (threadAffinity) {
+            T object = availableObjects.poll();
+            if (object == null) {
+                object = stealParked();
+            }
+            if (object != null) {
+                return object;
+            }
+        }
+        return availableObjects.poll(Math.max(0, timeoutNanos), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Встать в очередь ожидающих. Место в ограниченной очереди (maxWaiters) занимается через CAS,
+     * поэтому одновременно пришедшие потоки не могут превысить лимит.
+     *
+     * @throws RejectedExecutionException если очередь ожидающих заполнена
+     */
+    private void enterWaiting() {
+        if (maxWaiters == 0) {
+            waitingThreads.incrementAndGet();
+            return;
+        }
+        int waiting;
+        do {
+            waiting = waitingThreads.get();
+            if (waiting + asyncWaiters.size() >= maxWaiters) {
+                throw rejection();
+            }
+        } while (!waitingThreads.compareAndSet(waiting, waiting + 1));
+    }
+
+    private void leaveWaiting(long queuedAt) {
+        waitingThreads.decrementAndGet();
+        queueTimeHistogram.record(System.nanoTime() - queuedAt);
+    }
+
+    private RejectedExecutionException rejection() {
+        rejectedCount.incrementAndGet();
+        return new RejectedExecutionException("Пул исчерпан: уже ждут " + getWaitingCount()
+            + " запросов (maxWaiters=" + maxWaiters + ")");
+    }
+
+    private T takeFromAffinitySlot() {
+        T object = affinitySlot.get();
+        if (object == null) {
             return null;
         }
+        affinitySlot.remove();
+        // Объект мог быть украден другим потоком, пока лежал в слоте
+        return parkedObjects.remove(object) ? object : null;
+    }
+
+    private T stealParked() {
+        for (T object : parkedObjects) {
+            if (parkedObjects.remove(object)) {
+                return object;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Один проход фонового обслуживания: заранее заменить "стареющие" и отжившие свой срок свободные объекты,
+     * вытеснить давно простаивающие, досоздать свободные объекты до minIdle и сообщить о возможных утечках.
+     */
+    private void runMaintenance() {
+        try {
+            long now = System.currentTimeMillis();
+            int retired = 0;
+            for (T object : availableObjects) {
+                Verdict verdict = inspectIdle(object, now);
+                // remove() может не сработать, если объект уже забрал клиент - тогда его не трогаем
+                if (verdict != Verdict.KEEP && availableObjects.remove(object)) {
+                    destroyObject(object);
+                    retired += verdict == Verdict.REPLACE ? 1 : 0;
+                }
+            }
+            for (T object : parkedObjects) {
+                Verdict verdict = inspectIdle(object, now);
+                if (verdict != Verdict.KEEP && parkedObjects.remove(object)) {
+                    destroyObject(object);
+                    retired += verdict == Verdict.REPLACE ? 1 : 0;
+                }
+            }
+            if (validationStrategy == ValidationStrategy.BACKGROUND) {
+                retired += validateIdle();
+            }
+            replenish(retired);
+            ensureMinIdle();
+            detectLeaks(now);
+        } catch (Exception e) {
+            // Исключение не должно остановить периодическую задачу
+            System.err.println("Ошибка фонового обслуживания пула: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Фоновая валидация свободных объектов. Объект на время проверки забирается из пула,
+     * чтобы его не получил клиент, и возвращается, если он исправен.
+     *
+     * @return сколько невалидных объектов уничтожено
+     */
+    private int validateIdle() {
+        // Сначала забираем все свободные объекты: исправный объект возвращается в конец той же очереди,
+        // и обход очереди находил бы его снова - проход никогда бы не закончился
+        List<T> idle = new ArrayList<>(idleCount());
+        availableObjects.drainTo(idle, availableObjects.size());
+        for (T object : parkedObjects) {
+            if (parkedObjects.remove(object)) {
+                idle.add(object);
+            }
+        }
+        int destroyed = 0;
+        for (T object : idle) {
+            destroyed += revalidate(object);
+        }
+        return destroyed;
+    }
+
+    private int revalidate(T object) {
+        if (validate(object)) {
+            offerAvailable(object);
+            return 0;
+        }
+        destroyObject(object);
+        return 1;
+    }
+
+    /**
+     * Решить судьбу свободного объекта: оставить, уничтожить с заменой ("стареющий" или отживший max lifetime)
+     * или просто вытеснить (простаивает дольше idle timeout, а пул больше минимального размера).
+     */
+    private Verdict inspectIdle(T object, long now) {
+        ItemLifecycle lifecycle = lifecycles.get(object);
+        if (factory.shouldRetire(object) || isExpired(lifecycle, now)) {
+            return Verdict.REPLACE;
+        }
+        if (idleTimeoutMs > 0 && lifecycle != null
+            && now - lifecycle.lastUsedAt >= idleTimeoutMs
+            && currentSize.get() > minSize && idleCount() > minIdle) {
+            return Verdict.EVICT;
+        }
+        return Verdict.KEEP;
+    }
+
+    private boolean isExpired(ItemLifecycle lifecycle, long now) {
+        return maxLifetimeMs > 0 && lifecycle != null && now - lifecycle.createdAt >= maxLifetimeMs;
+    }
+
+    /**
+     * Сообщить об объектах, которые клиенты удерживают дольше порога. О каждой выдаче сообщается один раз.
+     */
+    private void detectLeaks(long now) {
+        if (leakDetectionThresholdMs <= 0) {
+            return;
+        }
+        inUseObjects.forEach((object, acquiredAt) -> {
+            ItemLifecycle lifecycle = lifecycles.get(object);
+            if (lifecycle == null || lifecycle.leakReported || now - acquiredAt < leakDetectionThresholdMs) {
+                return;
+            }
+            lifecycle.leakReported = true;
+            System.err.println("⚠ Возможная утечка: объект " + object + " удерживается " + (now - acquiredAt) + " ms"
+                + (lifecycle.acquireTrace == null ? " (стек взятия не сохранен)" : ""));
+            if (lifecycle.acquireTrace != null) {
+                lifecycle.acquireTrace.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Асинхронно создать замену уничтоженным объектам, чтобы создание не легло на путь запроса.
+     * Без фонового обслуживания замена создается, только если ее ждут: иначе ожидающий запрос
+     * узнал бы об освободившемся месте лишь по своему тайм-ауту.
+     */
+    private void requestReplenish(int count) {
+        if (maintenance != null || getWaitingCount() > 0) {
+            replenish(count);
+        }
+    }
+
+    private void replenish(int count) {
+        for (int i = 0; i < count; i++) {
+            if (!spawnCreation()) {
+                return;
+            }
+        }
+    }
+
+    private void ensureMinIdle() {
+        while (idleCount() + replenishing.get() < minIdle) {
+            if (!spawnCreation()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Зарезервировать место и создать объект в фоне. Создания выполняются параллельно,
+     * поэтому пополнение успевает за уничтожением даже при медленной фабрике.
+     *
+     * @return false, если пул закрыт или уже достиг максимального размера
+     */
+    private boolean spawnCreation() {
+        if (closed.get() || !tryReserveSlot()) {
+            return false;
+        }
+        if (creationBreaker != null && !creationBreaker.allowCreation()) {
+            releaseSlot();
+            return false;
+        }
+        replenishing.incrementAndGet();
+        CREATION_EXECUTOR.execute(() -> {
+            try {
+                offerAvailable(newObject());
+            } catch (Exception e) {
+                releaseSlot();
+                System.err.println("Ошибка фонового создания объекта: " + e.getMessage());
+            } finally {
+                replenishing.decrementAndGet();
+            }
+        });
+        return true;
+    }
+
+    private int idleCount() {
+        return availableObjects.size() + parkedObjects.size();
+    }
+
+    /**
+     * Вытеснить до count свободных объектов, не опускаясь ниже minSize.
+     * Используется, чтобы отдать место в общем бюджете другому, более нагруженному пулу.
+     *
+     * @return сколько объектов уничтожено
+     */
+    public int evictIdle(int count) {
+        int evicted = 0;
+        while (evicted < count && currentSize.get() > minSize) {
+            T object = availableObjects.poll();
+            if (object == null) {
+                object = stealParked();
+            }
+            if (object == null) {
+                break;
+            }
+            destroyObject(object);
+            evicted++;
+        }
+        return evicted;
+    }
 
-        // 4. Валидация объекта перед выдачей
-        if (!factory.validate(object)) {
+    /**
+     * Сделать объект доступным: передать асинхронному запросу, если такие есть, иначе положить в общую очередь.
+     */
+    private void offerAvailable(T object) {
+        if (closed.get()) {
+            // Объект создан в фоне, но пул уже закрыт
             destroyObject(object);
-            // Пытаемся получить другой объект, уменьшив оставшееся время
-            long elapsed = System.currentTimeMillis() - startTime;
-            return acquire(Math.max(0, timeoutMs - elapsed));
+        } else if (!handOffToAsyncWaiter(object)) {
+            availableObjects.offer(object);
         }
+    }
 
-        finalizeAcquire(object, startTime);
-        return object;
+    /**
+     * Вернуть объект в пул: асинхронному запросу, в режиме привязки - в thread-local слот
+     * текущего потока, иначе - в общую очередь.
+     * <p>
+     * Асинхронные запросы обслуживаются первыми даже в справедливом режиме: их ожидание не занимает потоков,
+     * а у синхронных потоков в очереди нет отметки времени, по которой их можно было бы упорядочить с ними.
+     */
+    private void returnToPool(T object) {
+        if (handOffToAsyncWaiter(object)) {
+            return;
+        }
+        if (!threadAffinity || affinitySlot.get() != null) {
+            availableObjects.offer(object);
+            return;
+        }
+
+        affinitySlot.set(object);
+        parkedObjects.add(object);
+
+        // Если кто-то ждет в очереди - отдаем объект ему. Порядок "запарковать, затем проверить
+        // ожидающих" гарантирует, что либо ожидающий увидит объект в parkedObjects, либо мы увидим его.
+        if (waitingThreads.get() > 0 && parkedObjects.remove(object)) {
+            affinitySlot.remove();
+            availableObjects.offer(object);
+        }
     }
 
-    private void finalizeAcquire(T object, long startTime) {
-        long waitTime = System.currentTimeMillis() - startTime;
-        totalWaitTime.addAndGet(waitTime);
+    private void finalizeAcquire(T object, long startNanos) {
+        long waitNanos = System.nanoTime() - startNanos;
+        totalWaitTime.addAndGet(waitNanos);
+        acquireWaitHistogram.record(waitNanos);
+        markInUse(object);
+
+        // Стек вызова сохраняем только при включенном поиске утечек и только для выборки acquire
+        if (leakDetectionThresholdMs > 0 && ThreadLocalRandom.current().nextDouble() < leakTraceSampleRate) {
+            ItemLifecycle lifecycle = lifecycles.get(object);
+            if (lifecycle != null) {
+                lifecycle.acquireTrace = new Throwable("Объект взят из пула здесь (поток " + Thread.currentThread().getName() + ")");
+            }
+        }
+    }
+
+    private void markInUse(T object) {
         inUseObjects.put(object, System.currentTimeMillis());
+        ItemLifecycle lifecycle = lifecycles.get(object);
+        if (lifecycle != null) {
+            lifecycle.acquiredAtNanos = System.nanoTime();
+        }
+    }
+
+    private T newObject() {
+        long start = System.nanoTime();
+        long attempt = creationBreaker == null ? 0 : creationBreaker.creationStarted();
+        T object;
+        try {
+            object = factory.create(this);
+        } catch (RuntimeException e) {
+            if (creationBreaker != null) {
+                creationBreaker.onFailure(e, attempt);
+            }
+            throw e;
+        }
+        if (creationBreaker != null) {
+            creationBreaker.onSuccess();
+        }
+        createTimeHistogram.record(System.nanoTime() - start);
+        lifecycles.put(object, new ItemLifecycle(System.currentTimeMillis()));
+        return object;
+    }
+
+    /**
+     * Проверить объект перед выдачей клиенту согласно стратегии валидации.
+     * При стратегиях ON_RELEASE и BACKGROUND объект уже проверен вне пути acquire.
+     */
+    private boolean validateOnBorrow(T object) {
+        return switch (validationStrategy) {
+            case ON_BORROW -> validate(object);
+            case IF_IDLE -> {
+                // "Горячий" объект выдается без сетевой проверки - достаточно сравнить время последнего возврата
+                ItemLifecycle lifecycle = lifecycles.get(object);
+                yield lifecycle != null && System.currentTimeMillis() - lifecycle.lastUsedAt < validationIdleThresholdMs
+                    || validate(object);
+            }
+            case ON_RELEASE, BACKGROUND -> true;
+        };
+    }
+
+    private boolean validate(T object) {
+        long start = System.nanoTime();
+        try {
+            return factory.validate(object);
+        } finally {
+            validateTimeHistogram.record(System.nanoTime() - start);
+        }
     }
 
     private void destroyObject(T object) {
@@ -177,8 +1223,9 @@ public class BlockingItemPool<T> implements ItemPool<T> {
         } catch (Exception e) {
             System.err.println("Ошибка при уничтожении объекта: " + e.getMessage());
         } finally {
-            currentSize.decrementAndGet();
+            releaseSlot();
             inUseObjects.remove(object);
+            lifecycles.remove(object);
         }
     }
 
@@ -189,20 +1236,63 @@ public class BlockingItemPool<T> implements ItemPool<T> {
         }
 
         // Проверяем, что объект принадлежит этому пулу (был выдан нами)
-        if (!inUseObjects.containsKey(object)) {
+        if (inUseObjects.remove(object) == null) {
             throw new IllegalArgumentException("Объект не принадлежит этому пулу");
         }
 
-        inUseObjects.remove(object);
         totalReleases.incrementAndGet();
+        recycle(object);
+    }
+
+    @Override
+    public void releaseAll(Collection<T> objects) {
+        // Сначала проверяем весь пакет, чтобы не вернуть его "наполовину"
+        for (T object : objects) {
+            if (object == null || !inUseObjects.containsKey(object)) {
+                throw new IllegalArgumentException("Объект не принадлежит этому пулу: " + object);
+            }
+        }
+
+        int released = 0;
+        for (T object : objects) {
+            if (inUseObjects.remove(object) != null) {
+                recycle(object);
+                released++;
+            }
+        }
+        totalReleases.addAndGet(released);
+    }
+
+    /**
+     * Подготовить возвращенный клиентом объект к повторному использованию (или уничтожить его).
+     */
+    private void recycle(T object) {
+        ItemLifecycle lifecycle = lifecycles.get(object);
+        if (lifecycle != null) {
+            holdTimeHistogram.record(System.nanoTime() - lifecycle.acquiredAtNanos);
+            lifecycle.lastUsedAt = System.currentTimeMillis();
+            lifecycle.acquireTrace = null;
+            lifecycle.leakReported = false;
+        }
 
         try {
             // Сбрасываем состояние объекта для чистого повторного использования
             factory.reset(object);
 
-            if (!closed.get()) {
-                // Возвращаем в очередь свободных объектов
-                availableObjects.offer(object);
+            if (maintenance != null && (factory.shouldRetire(object) || isExpired(lifecycle, System.currentTimeMillis()))) {
+                // Объект скоро "протухнет" или отжил свой срок - уничтожаем сейчас и создаем замену в фоне
+                destroyObject(object);
+                requestReplenish(1);
+            } else if (validationStrategy == ValidationStrategy.ON_RELEASE && !validate(object)) {
+                // Объект испорчен - уничтожаем сразу, чтобы следующий клиент его не получил
+                destroyObject(object);
+                requestReplenish(1);
+            } else if (currentSize.get() > maxSize) {
+                // Лимит уменьшили во время работы - пул сжимается по мере возврата объектов
+                destroyObject(object);
+            } else if (!closed.get()) {
+                // Возвращаем в очередь свободных объектов (или в слот потока в режиме привязки)
+                returnToPool(object);
             } else {
                 // Пул закрывается, лишние объекты не нужны
                 destroyObject(object);
@@ -213,38 +1303,176 @@ public class BlockingItemPool<T> implements ItemPool<T> {
         }
     }
 
+    /**
+     * Имя пула для мониторинга (JMX, метрики).
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Состояние предохранителя создания (CLOSED, если предохранитель выключен).
+     */
+    public CreationCircuitBreaker.State getCreationCircuitState() {
+        return creationBreaker == null ? CreationCircuitBreaker.State.CLOSED : creationBreaker.getState();
+    }
+
+    /**
+     * Текущий минимальный размер пула.
+     */
+    public int getMinSize() {
+        return minSize;
+    }
+
+    /**
+     * Текущий максимальный размер пула.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Изменить минимальный размер пула во время работы.
+     * Недостающие до нового минимума объекты создаются в фоне.
+     *
+     * @throws IllegalArgumentException если новый минимум отрицателен или больше maxSize
+     */
+    public void setMinSize(int newMinSize) {
+        if (newMinSize < 0 || newMinSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + newMinSize + ", max=" + maxSize);
+        }
+        this.minSize = newMinSize;
+        while (currentSize.get() + replenishing.get() < newMinSize) {
+            if (!spawnCreation()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Изменить максимальный размер пула во время работы.
+     * При уменьшении лишние свободные объекты уничтожаются сразу, а выданные - при возврате в пул.
+     *
+     * @throws IllegalArgumentException если новый максимум меньше minSize или равен 0
+     */
+    public void setMaxSize(int newMaxSize) {
+        if (newMaxSize <= 0 || newMaxSize < minSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + newMaxSize);
+        }
+        this.maxSize = newMaxSize;
+        int excess = currentSize.get() - newMaxSize;
+        if (excess > 0) {
+            evictIdle(excess);
+        }
+    }
+
+    /**
+     * Суммарное время ожидания в acquire (в наносекундах) - для расчета среднего за интервал.
+     */
+    long getTotalWaitNanos() {
+        return totalWaitTime.get();
+    }
+
+    /**
+     * Сколько запросов (синхронных и асинхронных) сейчас ждут освобождения объекта.
+     */
+    public int getWaitingCount() {
+        return waitingThreads.get() + asyncWaiters.size();
+    }
+
     @Override
     public PoolStatistics getStatistics() {
+        return buildStatistics(false);
+    }
+
+    @Override
+    public PoolStatistics getStatisticsAndReset() {
+        return buildStatistics(true);
+    }
+
+    private PoolStatistics buildStatistics(boolean reset) {
         long avgWaitTime = totalAcquires.get() > 0
-            ? totalWaitTime.get() / totalAcquires.get()
+            ? TimeUnit.NANOSECONDS.toMillis(totalWaitTime.get() / totalAcquires.get())
             : 0;
 
         return new PoolStatistics(
             currentSize.get(),
-            availableObjects.size(),
+            idleCount(),
             inUseObjects.size(),
             totalAcquires.get(),
             totalReleases.get(),
             timeoutCount.get(),
-            avgWaitTime
+            avgWaitTime,
+            reset ? acquireWaitHistogram.snapshotAndReset() : acquireWaitHistogram.snapshot(),
+            reset ? holdTimeHistogram.snapshotAndReset() : holdTimeHistogram.snapshot(),
+            reset ? createTimeHistogram.snapshotAndReset() : createTimeHistogram.snapshot(),
+            reset ? validateTimeHistogram.snapshotAndReset() : validateTimeHistogram.snapshot(),
+            getWaitingCount(),
+            rejectedCount.get(),
+            reset ? queueTimeHistogram.snapshotAndReset() : queueTimeHistogram.snapshot()
         );
     }
 
     @Override
     public void close() {
         if (closed.compareAndSet(false, true)) {
+            if (maintenance != null) {
+                maintenance.shutdownNow();
+            }
+            BlockingItemPoolMetrics.unregister(jmxName);
+
             // Уничтожаем все доступные объекты
             T object;
-            while ((object = availableObjects.poll()) != null) {
-                try {
-                    factory.destroy(object);
-                    currentSize.decrementAndGet();
-                } catch (Exception e) {
-                    System.err.println("Error destroying object: " + e.getMessage());
-                }
+            while ((object = availableObjects.poll()) != null || (object = stealParked()) != null) {
+                destroyObject(object);
+            }
+
+            // Асинхронные запросы больше не будут обслужены
+            AsyncWaiter<T> waiter;
+            while ((waiter = asyncWaiters.poll()) != null) {
+                waiter.future().completeExceptionally(new IllegalStateException("Пул закрыт"));
             }
 
             // ВАЖНО: объекты, которые еще используются, будут уничтожены при release
         }
     }
+
+    /**
+     * Решение фонового обслуживания по свободному объекту.
+     */
+    private enum Verdict {
+        /** Оставить в пуле */
+        KEEP,
+        /** Уничтожить и создать замену */
+        REPLACE,
+        /** Уничтожить без замены (пул сжимается после пика нагрузки) */
+        EVICT
+    }
+
+    /**
+     * Сведения о жизненном цикле объекта пула.
+     */
+    private static final class ItemLifecycle {
+        /** Время создания объекта */
+        private final long createdAt;
+        /** Время последнего возврата в пул (для idle timeout) */
+        private volatile long lastUsedAt;
+        /** Момент текущей выдачи клиенту по System.nanoTime (для гистограммы удержания) */
+        private volatile long acquiredAtNanos;
+        /** Стек вызова acquire текущей выдачи (если попал в выборку поиска утечек) */
+        private volatile Throwable acquireTrace;
+        /** Сообщено ли уже об утечке для текущей выдачи */
+        private volatile boolean leakReported;
+
+        private ItemLifecycle(long createdAt) {
+            this.createdAt = createdAt;
+            this.lastUsedAt = createdAt;
+        }
+    }
+
+    /**
+     * Асинхронный запрос объекта: future клиента и момент запроса по System.nanoTime (для статистики ожидания).
+     */
+    private record AsyncWaiter<T>(CompletableFuture<T> future, long startNanos) {
+    }
 }
@@ -0,0 +1,402 @@
+package org.gulash.objectpool.pool;
+
+import org.gulash.objectpool.factory.DirectByteBufferFactory;
+import org.gulash.objectpool.pool.util.PoolStatistics;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Пул direct-буферов ({@link ByteBuffer} вне кучи) с классами размеров - степенями двойки.
+ * <p>
+ * ИДЕЯ:
+ * Запрос буфера на N байт обслуживается буфером ближайшего сверху класса (512, 1024, 2048, ...),
+ * поэтому несколько пулов фиксированной емкости покрывают любые размеры, а потери на округление
+ * не превышают половины буфера. Каждый класс - отдельный {@link SlotItemPool}: он различает буферы
+ * по ссылке (equals/hashCode у ByteBuffer зависят от содержимого) и не выделяет память на acquire/release.
+ * <p>
+ * ОСОБЕННОСТИ:
+ * - Перед общими пулами стоит небольшой thread-local кэш на каждый класс: поток, который только что
+ *   вернул буфер, получит его обратно без обращения к общему пулу (буфер к тому же "теплый" в кэше CPU)
+ * - Буфер выдается очищенным: position = 0, limit = запрошенный размер (capacity - размер класса)
+ * - Запросы больше максимального класса обслуживаются обычным allocateDirect без пула
+ * - Буферы в thread-local кэше с точки зрения общего пула считаются выданными. Чтобы они не простаивали,
+ *   пока другой поток ждет: в кэшах всех потоков вместе лежит не больше половины буферов класса, а когда
+ *   класс исчерпан, ожидающий поток забирает буферы из чужих кэшей (и из кэшей завершившихся потоков) в пул
+ * - Кэши завершившихся потоков убираются и при регистрации кэшей новых потоков, поэтому при потоке на задачу
+ *   (в том числе с виртуальными потоками) их количество не растет без предела
+ * - Повторный release в тот же поток обнаруживается, а из другого потока (как и в других пулах
+ *   с thread-local кэшами) - нет
+ *
+ * <pre>{@code
+ * ByteBuffer buffer = buffers.acquire(1500);
+ * try {
+ *     channel.read(buffer);
+ * } finally {
+ *     buffers.release(buffer);
+ * }
+ * }</pre>
+ */
+public class ByteBufferPool implements AutoCloseable {
+
+    /**
+     * Меньше скольких кэшей поиск кэшей завершившихся потоков не запускается
+     */
+    private static final int MIN_SWEEP_THRESHOLD = 16;
+
+    private final int minClassSize;
+    private final int maxClassSize;
+    private final int minClassShift;
+
+    /**
+     * Пулы буферов по классам размеров (индекс 0 - minClassSize, далее каждый следующий вдвое больше)
+     */
+    private final SlotItemPool<ByteBuffer>[] classes;
+
+    /**
+     * Сколько буферов каждого класса поток держит в своем кэше (0 - кэш выключен)
+     */
+    private final int threadCacheSize;
+
+    private final ThreadLocal<ThreadCache> threadCache;
+
+    /**
+     * Кэши всех потоков: из них забираются буферы, когда класс исчерпан
+     */
+    private final Set<ThreadCache> threadCaches;
+
+    /**
+     * При каком количестве зарегистрированных кэшей искать кэши завершившихся потоков
+     */
+    private final AtomicInteger sweepThreshold;
+
+    /**
+     * Сколько буферов каждого класса лежит в кэшах всех потоков, и предел этого количества
+     */
+    private final AtomicIntegerArray cachedBuffers;
+    private final int maxCachedPerClass;
+
+    /**
+     * Флаг состояния пула (false - работает, true - закрыт)
+     */
+    private final AtomicBoolean closed;
+
+    private final LongAdder cacheHits;
+    private final LongAdder unpooledAllocations;
+
+    /**
+     * Пул с классами от 512 байт до 1 MB, до 64 буферов каждого класса и thread-local кэшем на 4 буфера класса.
+     */
+    public ByteBufferPool() {
+        this(512, 1 << 20, 64, 4);
+    }
+
+    /**
+     * @param minClassSize       размер наименьшего класса (степень двойки)
+     * @param maxClassSize       размер наибольшего класса (степень двойки)
+     * @param maxBuffersPerClass максимальное количество буферов одного класса
+     * @param threadCacheSize    сколько буферов каждого класса поток держит в своем кэше (0 - без кэша)
+     */
+    public ByteBufferPool(int minClassSize, int maxClassSize, int maxBuffersPerClass, int threadCacheSize) {
+        if (Integer.bitCount(minClassSize) != 1 || Integer.bitCount(maxClassSize) != 1 || maxClassSize < minClassSize) {
+            throw new IllegalArgumentException("Size classes must be powers of two: min=" + minClassSize + ", max=" + maxClassSize);
+        }
+        if (maxBuffersPerClass <= 0 || threadCacheSize < 0) {
+            throw new IllegalArgumentException("Invalid buffer limits: perClass=" + maxBuffersPerClass
+                + ", threadCache=" + threadCacheSize);
+        }
+
+        this.minClassSize = minClassSize;
+        this.maxClassSize = maxClassSize;
+        this.minClassShift = Integer.numberOfTrailingZeros(minClassSize);
+        int classCount = Integer.numberOfTrailingZeros(maxClassSize) - minClassShift + 1;
+        // Массив параметризованного типа создать нельзя - только "сырой" с непроверяемым приведением
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        SlotItemPool<ByteBuffer>[] classes = new SlotItemPool[classCount];
+        this.classes = classes;
+        for (int i = 0; i < classCount; i++) {
+            classes[i] = new SlotItemPool<>(new DirectByteBufferFactory(minClassSize << i), 0, maxBuffersPerClass);
+        }
+        this.threadCacheSize = threadCacheSize;
+        this.threadCaches = ConcurrentHashMap.newKeySet();
+        this.sweepThreshold = new AtomicInteger(MIN_SWEEP_THRESHOLD);
+        this.threadCache = ThreadLocal.withInitial(() -> registerCache(classCount));
+        this.cachedBuffers = new AtomicIntegerArray(classCount);
+        this.maxCachedPerClass = maxBuffersPerClass / 2;
+        if (threadCacheSize > 0) {
+            for (int i = 0; i < classCount; i++) {
+                int index = i;
+                classes[i].setReclaimer(() -> reclaim(index));
+            }
+        }
+        this.closed = new AtomicBoolean(false);
+        this.cacheHits = new LongAdder();
+        this.unpooledAllocations = new LongAdder();
+    }
+
+    /**
+     * Получить буфер не меньше size байт, ожидая освобождения не дольше timeoutMs.
+     *
+     * @return очищенный буфер (position = 0, limit = size) или null, если за указанное время буфер не освободился
+     * @throws InterruptedException если поток был прерван во время ожидания
+     * @throws IllegalStateException если пул уже закрыт
+     */
+    public ByteBuffer acquire(int size, long timeoutMs) throws InterruptedException {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Invalid buffer size: " + size);
+        }
+        if (closed.get()) {
+            throw new IllegalStateException("Пул закрыт");
+        }
+
+        if (size > maxClassSize) {
+            // Слишком большой запрос - не держим такие буферы в пуле
+            unpooledAllocations.increment();
+            return ByteBuffer.allocateDirect(size);
+        }
+
+        int index = sizeClass(size);
+        ByteBuffer buffer = threadCacheSize > 0 ? threadCache.get().poll(index) : null;
+        if (buffer != null) {
+            cachedBuffers.decrementAndGet(index);
+            cacheHits.increment();
+        } else {
+            // Если класс исчерпан, пул перед ожиданием вернет в себя буферы из чужих кэшей (см. reclaim)
+            buffer = classes[index].acquire(timeoutMs);
+            if (buffer == null) {
+                return null;
+            }
+        }
+        buffer.limit(size);
+        return buffer;
+    }
+
+    /**
+     * Получить буфер не меньше size байт с неограниченным временем ожидания.
+     */
+    public ByteBuffer acquire(int size) throws InterruptedException {
+        return acquire(size, Long.MAX_VALUE);
+    }
+
+    /**
+     * Вернуть буфер в пул.
+     *
+     * @throws IllegalArgumentException если буфер не был выдан этим пулом
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            throw new IllegalArgumentException("Нельзя вернуть null объект");
+        }
+
+        int capacity = buffer.capacity();
+        if (capacity > maxClassSize && buffer.isDirect()) {
+            // Буфер выделен без пула - просто отпускаем его (память освободит GC)
+            return;
+        }
+        // Heap-буфер больше наибольшего класса пул не выдает - это чужой объект, а не внепуловое выделение
+        if (capacity < minClassSize || capacity > maxClassSize || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Объект не принадлежит этому пулу");
+        }
+
+        int index = sizeClass(capacity);
+        SlotItemPool<ByteBuffer> pool = classes[index];
+        if (threadCacheSize > 0 && !closed.get() && pool.isInUse(buffer)) {
+            ThreadCache cache = threadCache.get();
+            if (cache.contains(index, buffer)) {
+                throw new IllegalArgumentException("Буфер уже возвращен в пул");
+            }
+            // Предел на все кэши: часть буферов класса всегда остается доступной другим потокам через пул
+            if (cachedBuffers.incrementAndGet(index) <= maxCachedPerClass) {
+                buffer.clear();
+                if (cache.offer(index, buffer)) {
+                    return;
+                }
+            }
+            cachedBuffers.decrementAndGet(index);
+        }
+        pool.release(buffer);
+    }
+
+    /**
+     * Зарегистрировать кэш нового потока. Заодно убираются кэши завершившихся потоков: обход запускается,
+     * когда кэшей стало вдвое больше, чем после прошлого обхода, поэтому в среднем он стоит O(1) на регистрацию.
+     */
+    private ThreadCache registerCache(int classCount) {
+        ThreadCache cache = new ThreadCache(classCount, threadCacheSize);
+        threadCaches.add(cache);
+        int threshold = sweepThreshold.get();
+        // Обходит один поток: на время обхода порог недостижим для остальных
+        if (threadCaches.size() >= threshold && sweepThreshold.compareAndSet(threshold, Integer.MAX_VALUE)) {
+            for (ThreadCache registered : threadCaches) {
+                if (registered.isOwnerDead()) {
+                    forget(registered);
+                }
+            }
+            sweepThreshold.set(Math.max(MIN_SWEEP_THRESHOLD, threadCaches.size() * 2));
+        }
+        return cache;
+    }
+
+    /**
+     * Класс исчерпан: вернуть в пул буферы этого класса из кэшей всех потоков.
+     * Кэши завершившихся потоков опустошаются целиком и забываются.
+     */
+    private void reclaim(int index) {
+        if (cachedBuffers.get(index) == 0) {
+            return;
+        }
+        for (ThreadCache cache : threadCaches) {
+            if (cache.isOwnerDead()) {
+                forget(cache);
+            } else {
+                drain(cache, index);
+            }
+        }
+    }
+
+    /**
+     * Вернуть в пул все буферы кэша завершившегося потока и забыть кэш.
+     */
+    private void forget(ThreadCache cache) {
+        for (int i = 0; i < classes.length; i++) {
+            drain(cache, i);
+        }
+        threadCaches.remove(cache);
+    }
+
+    private void drain(ThreadCache cache, int index) {
+        ByteBuffer buffer;
+        while ((buffer = cache.poll(index)) != null) {
+            cachedBuffers.decrementAndGet(index);
+            classes[index].release(buffer);
+        }
+    }
+
+    private int sizeClass(int size) {
+        int rounded = Math.max(size, minClassSize);
+        return (32 - Integer.numberOfLeadingZeros(rounded - 1)) - minClassShift;
+    }
+
+    /**
+     * Статистика по классам размеров (ключ - емкость буфера класса).
+     * Буферы в thread-local кэшах учитываются как выданные.
+     */
+    public Map<Integer, PoolStatistics> getStatistics() {
+        Map<Integer, PoolStatistics> statistics = new LinkedHashMap<>();
+        for (int i = 0; i < classes.length; i++) {
+            statistics.put(minClassSize << i, classes[i].getStatistics());
+        }
+        return statistics;
+    }
+
+    /**
+     * Сколько запросов обслужено из thread-local кэша без обращения к общему пулу.
+     */
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * Сколько буферов больше максимального класса выделено без пула.
+     */
+    public long getUnpooledAllocations() {
+        return unpooledAllocations.sum();
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            // Сначала возвращаем буферы из кэшей: закрытый пул уничтожит их при release
+            for (ThreadCache cache : threadCaches) {
+                for (int i = 0; i < classes.length; i++) {
+                    drain(cache, i);
+                }
+            }
+            threadCaches.clear();
+            for (SlotItemPool<ByteBuffer> pool : classes) {
+                pool.close();
+            }
+        }
+    }
+
+    /**
+     * Кэш потока: по небольшому стеку буферов на каждый класс размеров.
+     * Обычно к нему обращается только поток-владелец, поэтому блокировка почти всегда свободна;
+     * другие потоки берут ее, только когда забирают буферы исчерпанного класса.
+     */
+    private static final class ThreadCache {
+        private final WeakReference<Thread> owner;
+        private final ReentrantLock lock;
+        private final ByteBuffer[][] buffers;
+        private final int[] counts;
+
+        private ThreadCache(int classCount, int size) {
+            this.owner = new WeakReference<>(Thread.currentThread());
+            this.lock = new ReentrantLock();
+            this.buffers = new ByteBuffer[classCount][size];
+            this.counts = new int[classCount];
+        }
+
+        private ByteBuffer poll(int index) {
+            lock.lock();
+            try {
+                int count = counts[index];
+                if (count == 0) {
+                    return null;
+                }
+                ByteBuffer buffer = buffers[index][--count];
+                buffers[index][count] = null;
+                counts[index] = count;
+                return buffer;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return false, если кэш класса заполнен
+         */
+        private boolean offer(int index, ByteBuffer buffer) {
+            lock.lock();
+            try {
+                int count = counts[index];
+                if (count == buffers[index].length) {
+                    return false;
+                }
+                buffers[index][count] = buffer;
+                counts[index] = count + 1;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean contains(int index, ByteBuffer buffer) {
+            lock.lock();
+            try {
+                for (int i = 0; i < counts[index]; i++) {
+                    if (buffers[index][i] == buffer) {
+                        return true;
+                    }
+                }
+                return false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean isOwnerDead() {
+            Thread thread = owner.get();
+            return thread == null || !thread.isAlive();
+        }
+    }
+}
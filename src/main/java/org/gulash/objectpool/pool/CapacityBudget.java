@@ -0,0 +1,73 @@
+package org.gulash.objectpool.pool;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Общий лимит объектов для нескольких пулов (например, подпулов {@link KeyedItemPool}).
+ * <p>
+ * Пул резервирует место в бюджете перед созданием объекта и возвращает его при уничтожении.
+ * Если бюджет исчерпан, вызывается {@link Reclaimer}: он может освободить место,
+ * вытеснив свободный объект из другого пула.
+ */
+class CapacityBudget {
+
+    /**
+     * Стратегия освобождения места в исчерпанном бюджете.
+     */
+    @FunctionalInterface
+    interface Reclaimer {
+        /**
+         * Освободить одно место в бюджете за счет других пулов.
+         *
+         * @param requester пул, которому не хватило места (его объекты вытеснять не нужно)
+         * @return true, если место освобождено
+         */
+        boolean reclaim(ItemPool<?> requester);
+    }
+
+    private final int maxSize;
+    private final AtomicInteger used;
+    private final Reclaimer reclaimer;
+
+    CapacityBudget(int maxSize, Reclaimer reclaimer) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Invalid capacity budget: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.used = new AtomicInteger(0);
+        this.reclaimer = reclaimer;
+    }
+
+    /**
+     * Зарезервировать до count мест. При нехватке места пытается освободить его через {@link Reclaimer}.
+     *
+     * @return сколько мест удалось зарезервировать (от 0 до count)
+     */
+    int tryAcquire(ItemPool<?> requester, int count) {
+        int reserved = 0;
+        while (reserved < count) {
+            int current = used.get();
+            int granted = Math.min(count - reserved, maxSize - current);
+            if (granted > 0) {
+                if (used.compareAndSet(current, current + granted)) {
+                    reserved += granted;
+                }
+            } else if (reclaimer == null || !reclaimer.reclaim(requester)) {
+                break;
+            }
+        }
+        return reserved;
+    }
+
+    void release(int count) {
+        used.addAndGet(-count);
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    int getUsed() {
+        return used.get();
+    }
+}
@@ -0,0 +1,161 @@
+package org.gulash.objectpool.pool;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Предохранитель (circuit breaker) для создания объектов пула.
+ * <p>
+ * ИДЕЯ:
+ * Если ресурс недоступен (например, БД упала), каждый acquire пытается создать объект сам,
+ * и все потоки одновременно "долбят" мертвый сервер и висят на его тайм-ауте.
+ * Предохранитель после серии ошибок подряд "размыкается": создание приостанавливается
+ * на время отката (экспоненциально растущее, со случайным разбросом, чтобы пулы разных
+ * сервисов не просыпались одновременно). По истечении отката ровно один поток-разведчик
+ * пробует создать объект: успех замыкает предохранитель, ошибка снова размыкает его с удвоенным откатом.
+ * <p>
+ * Состояния:
+ * - CLOSED - создание разрешено
+ * - OPEN - создание запрещено до конца отката
+ * - HALF_OPEN - откат истек, выполняется единственная пробная попытка
+ */
+public class CreationCircuitBreaker {
+
+    /**
+     * Состояние предохранителя.
+     */
+    public enum State {
+        /** Создание разрешено */
+        CLOSED,
+        /** Создание запрещено до конца отката */
+        OPEN,
+        /** Выполняется единственная пробная попытка создания */
+        HALF_OPEN
+    }
+
+    /**
+     * Снимок предохранителя: состояние публикуется вместе с моментом пробы и откатом одной CAS-операцией,
+     * поэтому поток, увидевший OPEN, никогда не увидит retryAt предыдущего размыкания.
+     *
+     * @param retryAt   момент (System.currentTimeMillis), после которого разрешена пробная попытка
+     * @param backoffMs текущий откат
+     * @param epoch     номер перехода: по нему ошибка пробы отличается от ошибки создания, начатого раньше
+     */
+    private record Circuit(State state, long retryAt, long backoffMs, long epoch) {
+
+        private Circuit next(State state, long retryAt, long backoffMs) {
+            return new Circuit(state, retryAt, backoffMs, epoch + 1);
+        }
+    }
+
+    private final int failureThreshold;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+
+    private final AtomicReference<Circuit> circuit;
+    private final AtomicInteger consecutiveFailures;
+
+    /**
+     * @param failureThreshold сколько ошибок создания подряд размыкают предохранитель
+     * @param initialBackoffMs откат после первого размыкания
+     * @param maxBackoffMs     максимальный откат
+     */
+    public CreationCircuitBreaker(int failureThreshold, long initialBackoffMs, long maxBackoffMs) {
+        if (failureThreshold <= 0 || initialBackoffMs <= 0 || maxBackoffMs < initialBackoffMs) {
+            throw new IllegalArgumentException("Invalid circuit breaker settings: threshold=" + failureThreshold
+                + ", backoff=" + initialBackoffMs + ", maxBackoff=" + maxBackoffMs);
+        }
+        this.failureThreshold = failureThreshold;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.circuit = new AtomicReference<>(new Circuit(State.CLOSED, 0, initialBackoffMs, 0));
+        this.consecutiveFailures = new AtomicInteger(0);
+    }
+
+    /**
+     * Разрешить создание до requested объектов.
+     *
+     * @return requested, если предохранитель замкнут; 1, если откат истек и вызывающий поток
+     * стал разведчиком; 0 - создание сейчас запрещено
+     */
+    public int permitCreations(int requested) {
+        Circuit current = circuit.get();
+        if (current.state() == State.CLOSED) {
+            return requested;
+        }
+        // Разведчиком становится только тот, кто первым переведет OPEN -> HALF_OPEN
+        if (current.state() == State.OPEN && System.currentTimeMillis() >= current.retryAt()
+            && circuit.compareAndSet(current, current.next(State.HALF_OPEN, current.retryAt(), current.backoffMs()))) {
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Разрешено ли создать один объект (см. {@link #permitCreations(int)}).
+     */
+    public boolean allowCreation() {
+        return permitCreations(1) == 1;
+    }
+
+    /**
+     * Создание объекта начинается. Результат передается в {@link #onFailure(Throwable, long)}:
+     * у пробы он совпадает с переходом в HALF_OPEN, у создания, начатого до размыкания, - нет.
+     */
+    public long creationStarted() {
+        return circuit.get().epoch();
+    }
+
+    /**
+     * Объект успешно создан: предохранитель замыкается, откат сбрасывается.
+     */
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        Circuit current;
+        do {
+            current = circuit.get();
+            if (current.state() == State.CLOSED) {
+                return;
+            }
+        } while (!circuit.compareAndSet(current, current.next(State.CLOSED, 0, initialBackoffMs)));
+        System.out.println("✓ Создание объектов восстановлено");
+    }
+
+    /**
+     * Создание не удалось: после failureThreshold ошибок подряд (или при неудачной пробе) предохранитель размыкается.
+     * Пока идет проба, исход решает только она: ошибка создания, начатого до размыкания, лишь учитывается.
+     *
+     * @param startedAt значение {@link #creationStarted()} в начале этого создания
+     */
+    public void onFailure(Throwable error, long startedAt) {
+        int failures = consecutiveFailures.incrementAndGet();
+        while (true) {
+            Circuit current = circuit.get();
+            long backoff;
+            if (current.state() == State.HALF_OPEN && current.epoch() == startedAt) {
+                // Проба не удалась - удваиваем откат
+                backoff = Math.min(maxBackoffMs, current.backoffMs() * 2);
+            } else if (current.state() == State.CLOSED && failures >= failureThreshold) {
+                backoff = current.backoffMs();
+            } else {
+                return;
+            }
+            // Случайный разброс в пределах [backoff/2, backoff]: пулы не просыпаются одновременно
+            long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+            if (circuit.compareAndSet(current, current.next(State.OPEN, System.currentTimeMillis() + delay, backoff))) {
+                System.err.println("⚡ Создание объектов приостановлено на " + delay + " ms после " + failures
+                    + " ошибок подряд: " + error.getMessage());
+                return;
+            }
+        }
+    }
+
+    public State getState() {
+        return circuit.get().state();
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+}
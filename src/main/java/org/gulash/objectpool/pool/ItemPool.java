@@ -2,6 +2,17 @@ package org.gulash.objectpool.pool;
 
 import org.gulash.objectpool.pool.util.PoolStatistics;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
 /**
  * Базовый интерфейс для всех пулов объектов.
  * Паттерн "Object Pool" (Пул объектов) используется для управления жизненным циклом
@@ -35,6 +46,91 @@ public interface ItemPool<T> extends AutoCloseable {
         return acquire(Long.MAX_VALUE);
     }
 
+    /**
+     * Получить объект из пула асинхронно, не блокируя вызывающий поток.
+     * Подходит для реактивных сервисов и event-loop потоков, которые нельзя "парковать".
+     * <p>
+     * Реализация по умолчанию выполняет блокирующий {@link #acquire(long)} в общем ForkJoinPool
+     * и нужна только для совместимости; пулы, для которых это важно, реализуют метод нативно.
+     *
+     * @param timeout максимальное время ожидания
+     * @return future, которое завершится объектом из пула, либо исключением {@link TimeoutException},
+     * если за указанное время объект не освободился
+     * @throws IllegalStateException если пул уже закрыт
+     */
+    default CompletableFuture<T> acquireAsync(Duration timeout) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                T object = acquire(timeout.toMillis());
+                if (object == null) {
+                    throw new CompletionException(new TimeoutException("Тайм-аут ожидания объекта из пула: " + timeout));
+                }
+                return object;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Вариант {@link #acquireAsync(Duration)} с обратным вызовом.
+     * Callback получает либо объект (и null вместо ошибки), либо null и причину неудачи.
+     */
+    default void acquireAsync(Duration timeout, BiConsumer<? super T, ? super Throwable> callback) {
+        acquireAsync(timeout).whenComplete(callback);
+    }
+
+    /**
+     * Получить сразу n объектов по принципу "все или ничего".
+     * Нужен пакетным задачам (например, параллельные запросы к шардам): если объектов не хватает
+     * до истечения тайм-аута, уже взятые объекты возвращаются в пул, и клиент не держит "половину" пула.
+     * <p>
+     * Реализация по умолчанию вызывает {@link #acquire(long)} n раз с общим дедлайном.
+     * Пулы, которым важна атомарность пакетного захвата, реализуют метод нативно.
+     *
+     * @param n       сколько объектов нужно
+     * @param timeout максимальное время ожидания всех n объектов
+     * @return список из n объектов или пустой список, если за указанное время набрать их не удалось
+     * @throws InterruptedException  если поток был прерван во время ожидания
+     * @throws IllegalArgumentException если n не положительно
+     * @throws IllegalStateException если пул уже закрыт
+     */
+    default List<T> acquireAll(int n, Duration timeout) throws InterruptedException {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Invalid batch size: " + n);
+        }
+        long deadline = System.nanoTime() + timeout.toNanos();
+        List<T> acquired = new ArrayList<>(n);
+        try {
+            while (acquired.size() < n) {
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                T object = acquire(Math.max(0, remainingMs));
+                if (object == null) {
+                    releaseAll(acquired);
+                    return Collections.emptyList();
+                }
+                acquired.add(object);
+            }
+            return acquired;
+        } catch (InterruptedException | RuntimeException e) {
+            releaseAll(acquired);
+            throw e;
+        }
+    }
+
+    /**
+     * Вернуть в пул сразу несколько объектов (например, полученных через {@link #acquireAll(int, Duration)}).
+     *
+     * @param objects объекты, которые нужно вернуть в пул
+     * @throws IllegalArgumentException если какой-либо объект не принадлежит этому пулу
+     */
+    default void releaseAll(Collection<T> objects) {
+        for (T object : objects) {
+            release(object);
+        }
+    }
+
     /**
      * Вернуть объект обратно в пул для повторного использования.
      * После вызова этого метода объект становится доступен для других вызовов acquire().
@@ -49,6 +145,16 @@ public interface ItemPool<T> extends AutoCloseable {
      */
     PoolStatistics getStatistics();
 
+    /**
+     * Получить статистику и обнулить накопленные распределения задержек.
+     * Предназначен для периодического сбора метрик: перцентили в снимке относятся к интервалу
+     * с предыдущего вызова. Счетчики (acquires, releases, timeouts) не обнуляются.
+     * Реализация по умолчанию просто возвращает {@link #getStatistics()}.
+     */
+    default PoolStatistics getStatisticsAndReset() {
+        return getStatistics();
+    }
+
     /**
      * Закрыть пул и корректно освободить все удерживаемые им ресурсы.
      * Все свободные объекты уничтожаются немедленно. Те, что находятся в использовании,
@@ -0,0 +1,287 @@
+package org.gulash.objectpool.pool;
+
+import org.gulash.objectpool.factory.ItemFactory;
+import org.gulash.objectpool.pool.config.PoolConfig;
+import org.gulash.objectpool.pool.util.PoolStatistics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Пул объектов с разбиением по ключу (например, по шарду БД "host:port") и общим лимитом емкости.
+ * <p>
+ * ИДЕЯ:
+ * Отдельный {@link BlockingItemPool} на каждый шард не позволяет перераспределять емкость:
+ * простаивающий шард держит свои соединения, пока нагруженный упирается в свой maxSize.
+ * Здесь у каждого ключа свой подпул (лениво создается при первом обращении), но все подпулы делят
+ * общий лимит globalMaxSize. Когда он исчерпан, свободные объекты "холодных" ключей (к которым
+ * дольше всех не обращались) вытесняются, и освободившееся место получает "горячий" ключ.
+ * <p>
+ * ОСОБЕННОСТИ:
+ * - Подпулы - обычные BlockingItemPool с общими для всех ключей настройками (PoolConfig).
+ *   Если в настройках задано имя пула, подпул получает имя "имя[ключ]" - у каждого свой MXBean
+ * - Объект, созданный для ключа, возвращается в подпул своего ключа (в том числе через self-release,
+ *   например {@code DatabaseConnection.close()})
+ * - Статистика по каждому ключу и счетчик вытеснений в пользу других ключей
+ * - Вытесняются только свободные объекты и не ниже minSize подпула, поэтому для перераспределения
+ *   емкости minSize/minIdle подпулов стоит держать небольшими
+ *
+ * <pre>{@code
+ * KeyedItemPool<String, DatabaseConnection> pool = new KeyedItemPool<>(
+ *         shard -> new DatabaseConnectionFactory(shard, 5432),
+ *         new PoolConfig.Builder(0, 10).build(),
+ *         20);
+ * DatabaseConnection connection = pool.acquire("db-1", 1000);
+ * }</pre>
+ *
+ * @param <K> тип ключа
+ * @param <T> тип объектов пула
+ */
+public class KeyedItemPool<K, T> implements AutoCloseable {
+
+    /**
+     * Фабрика фабрик: создает ItemFactory для нового ключа
+     */
+    private final Function<K, ItemFactory<T>> factoryProvider;
+
+    /**
+     * Настройки, с которыми создается подпул каждого ключа
+     */
+    private final PoolConfig keyConfig;
+
+    /**
+     * Общий для всех подпулов лимит объектов
+     */
+    private final CapacityBudget capacityBudget;
+
+    /**
+     * Подпулы по ключам
+     */
+    private final ConcurrentHashMap<K, KeyedPool<T>> pools;
+
+    /**
+     * Сколько свободных объектов вытеснено, чтобы отдать место другому ключу
+     */
+    private final AtomicLong reclaimedCount;
+
+    /**
+     * Флаг состояния пула (false - работает, true - закрыт)
+     */
+    private final AtomicBoolean closed;
+
+    /**
+     * Создать пул с разбиением по ключу.
+     *
+     * @param factoryProvider создает фабрику объектов для нового ключа
+     * @param keyConfig       настройки подпула каждого ключа (maxSize - лимит одного ключа)
+     * @param globalMaxSize   общий лимит объектов всех ключей
+     */
+    public KeyedItemPool(Function<K, ItemFactory<T>> factoryProvider, PoolConfig keyConfig, int globalMaxSize) {
+        this.factoryProvider = factoryProvider;
+        this.keyConfig = keyConfig;
+        this.capacityBudget = new CapacityBudget(globalMaxSize, this::reclaimFromColdKey);
+        this.pools = new ConcurrentHashMap<>();
+        this.reclaimedCount = new AtomicLong(0);
+        this.closed = new AtomicBoolean(false);
+    }
+
+    /**
+     * Получить объект для ключа.
+     *
+     * @param key       ключ (например, адрес шарда)
+     * @param timeoutMs максимальное время ожидания в миллисекундах
+     * @return объект или null, если за указанное время объект не освободился
+     * @throws InterruptedException если поток был прерван во время ожидания
+     * @throws IllegalStateException если пул уже закрыт
+     */
+    public T acquire(K key, long timeoutMs) throws InterruptedException {
+        return poolFor(key).acquire(timeoutMs);
+    }
+
+    /**
+     * Получить объект для ключа с неограниченным временем ожидания.
+     */
+    public T acquire(K key) throws InterruptedException {
+        return acquire(key, Long.MAX_VALUE);
+    }
+
+    /**
+     * Вернуть объект в подпул его ключа.
+     *
+     * @throws IllegalArgumentException если объект не был выдан для этого ключа
+     */
+    public void release(K key, T object) {
+        KeyedPool<T> keyed = pools.get(key);
+        if (keyed == null) {
+            throw new IllegalArgumentException("Неизвестный ключ: " + key);
+        }
+        keyed.pool().release(object);
+    }
+
+    /**
+     * Подпул ключа (создается при первом обращении). Удобен, когда код работает с обычным {@link ItemPool}.
+     */
+    public ItemPool<T> getPool(K key) {
+        return poolFor(key);
+    }
+
+    private BlockingItemPool<T> poolFor(K key) {
+        if (closed.get()) {
+            throw new IllegalStateException("Пул закрыт");
+        }
+        KeyedPool<T> keyed = pools.get(key);
+        if (keyed == null) {
+            // Подпул (вместе с созданием minSize объектов) строится вне computeIfAbsent: иначе все это время
+            // была бы захвачена блокировка корзины ConcurrentHashMap, а на ней - обращения к соседним ключам.
+            // В карту сначала попадает заготовка, и остальные потоки этого ключа ждут ее готовности.
+            KeyedPool<T> placeholder = new KeyedPool<>();
+            keyed = pools.putIfAbsent(key, placeholder);
+            if (keyed == null) {
+                keyed = placeholder;
+                buildPool(key, placeholder);
+            }
+        }
+        keyed.lastAcquireAt = System.nanoTime();
+        return keyed.pool();
+    }
+
+    private void buildPool(K key, KeyedPool<T> placeholder) {
+        BlockingItemPool<T> pool;
+        try {
+            pool = new BlockingItemPool<>(factoryProvider.apply(key), configFor(key), capacityBudget);
+        } catch (RuntimeException e) {
+            // Следующее обращение к ключу попробует построить подпул заново
+            pools.remove(key, placeholder);
+            placeholder.future.completeExceptionally(e);
+            throw e;
+        }
+        placeholder.future.complete(pool);
+        if (closed.get()) {
+            // close() мог пройти, пока подпул строился, и не увидеть его
+            pool.close();
+        }
+    }
+
+    /**
+     * Настройки подпула ключа. Имя пула уникально для каждого ключа, иначе регистрация MXBean подпулов
+     * конфликтовала бы; без имени подпулы получают автоматические имена pool-N.
+     */
+    private PoolConfig configFor(K key) {
+        if (keyConfig.getPoolName() == null) {
+            return keyConfig;
+        }
+        return keyConfig.toBuilder().setPoolName(keyConfig.getPoolName() + "[" + key + "]").build();
+    }
+
+    /**
+     * Освободить место в общем бюджете: вытеснить один свободный объект ключа,
+     * к которому дольше всех не обращались.
+     */
+    private boolean reclaimFromColdKey(ItemPool<?> requester) {
+        List<KeyedPool<T>> candidates = new ArrayList<>(pools.values());
+        candidates.sort(Comparator.comparingLong(keyed -> keyed.lastAcquireAt));
+        for (KeyedPool<T> keyed : candidates) {
+            // Подпулы, которые еще строятся, пропускаем: ждать их нельзя - построение само может вызвать этот метод
+            BlockingItemPool<T> pool = keyed.poolIfBuilt();
+            if (pool != null && pool != requester && pool.evictIdle(1) > 0) {
+                reclaimedCount.incrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Статистика подпула ключа (null, если к ключу еще не обращались).
+     */
+    public PoolStatistics getStatistics(K key) {
+        KeyedPool<T> keyed = pools.get(key);
+        BlockingItemPool<T> pool = keyed == null ? null : keyed.poolIfBuilt();
+        return pool == null ? null : pool.getStatistics();
+    }
+
+    /**
+     * Статистика всех подпулов по ключам.
+     */
+    public Map<K, PoolStatistics> getStatisticsByKey() {
+        Map<K, PoolStatistics> statistics = new LinkedHashMap<>();
+        pools.forEach((key, keyed) -> {
+            BlockingItemPool<T> pool = keyed.poolIfBuilt();
+            if (pool != null) {
+                statistics.put(key, pool.getStatistics());
+            }
+        });
+        return statistics;
+    }
+
+    /**
+     * Общее количество объектов во всех подпулах.
+     */
+    public int getTotalSize() {
+        return capacityBudget.getUsed();
+    }
+
+    /**
+     * Общий лимит объектов всех ключей.
+     */
+    public int getGlobalMaxSize() {
+        return capacityBudget.getMaxSize();
+    }
+
+    /**
+     * Сколько свободных объектов было вытеснено, чтобы отдать место другому ключу.
+     */
+    public long getReclaimedCount() {
+        return reclaimedCount.get();
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            pools.values().forEach(keyed -> {
+                BlockingItemPool<T> pool = keyed.poolIfBuilt();
+                if (pool != null) {
+                    pool.close();
+                }
+            });
+        }
+    }
+
+    /**
+     * Подпул ключа (заполняется, когда построен) и момент последнего обращения к нему
+     * (по System.nanoTime) для выбора "холодных" ключей.
+     */
+    private static final class KeyedPool<T> {
+        private final CompletableFuture<BlockingItemPool<T>> future;
+        private volatile long lastAcquireAt;
+
+        private KeyedPool() {
+            this.future = new CompletableFuture<>();
+            this.lastAcquireAt = System.nanoTime();
+        }
+
+        /**
+         * Подпул, при необходимости дождавшись его построения другим потоком.
+         */
+        private BlockingItemPool<T> pool() {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        private BlockingItemPool<T> poolIfBuilt() {
+            return future.isCompletedExceptionally() ? null : future.getNow(null);
+        }
+    }
+}
@@ -0,0 +1,536 @@
+package org.gulash.objectpool.pool;
+
+import org.gulash.objectpool.factory.ItemFactory;
+import org.gulash.objectpool.pool.util.LatencyHistogram;
+import org.gulash.objectpool.pool.util.PoolStatistics;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Реализация пула без аллокаций на пути acquire/release.
+ * <p>
+ * ИДЕЯ:
+ * {@link BlockingItemPool} на каждый цикл выделяет узел очереди, упаковывает Long в карту выданных
+ * объектов и т.д. При сотнях тысяч acquire в секунду это заметная нагрузка на GC.
+ * Здесь все состояние заранее разложено по массивам "слотов" фиксированного размера maxSize:
+ * объект, состояние слота и момент выдачи хранятся в примитивных массивах, а принадлежность
+ * объекта пулу проверяется по индексу слота через заранее выделенную identity-таблицу.
+ * <p>
+ * ОСОБЕННОСТИ:
+ * - В установившемся режиме acquire/release не выделяют память (проверяется JMH с {@code -prof gc})
+ * - Емкость ограничивается семафором: без ожидания он работает одним CAS, память выделяется
+ *   только когда поток действительно засыпает в ожидании свободного объекта
+ * - Поиск свободного слота начинается с "домашнего" слота потока, чтобы потоки реже сталкивались
+ * - Идентичность объектов - по ссылке (==), поэтому подходит и для объектов с "содержательным"
+ *   equals/hashCode (например, ByteBuffer)
+ * - Тот же контракт ItemFactory (validate/reset/destroy) и та же PoolStatistics
+ */
+public class SlotItemPool<T> implements ItemPool<T> {
+
+    // Состояния слота
+    private static final int EMPTY = 0;
+    private static final int FREE = 1;
+    private static final int IN_USE = 2;
+    private static final int RESERVED = 3;
+
+    /**
+     * Как часто ожидающий поток повторно вызывает {@link #reclaimer}, пока ждет разрешения
+     */
+    private static final long RECLAIM_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * Маркер удаленного ключа в identity-таблице (открытая адресация)
+     */
+    private static final Object TOMBSTONE = new Object();
+
+    /**
+     * Фабрика для создания и управления объектами пула
+     */
+    private final ItemFactory<T> factory;
+
+    /**
+     * Объекты по слотам (null - слот пуст)
+     */
+    private final AtomicReferenceArray<T> items;
+
+    /**
+     * Состояние каждого слота: EMPTY, FREE, IN_USE или RESERVED (объект создается или уничтожается)
+     */
+    private final AtomicIntegerArray states;
+
+    /**
+     * Момент выдачи объекта из слота по System.nanoTime (для гистограммы удержания)
+     */
+    private final AtomicLongArray acquireNanos;
+
+    /**
+     * Identity-таблица "объект -> индекс слота": ключи сравниваются по ссылке, таблица выделена заранее
+     * и меняется только при создании/уничтожении объектов (под indexLock). Читается без блокировок.
+     * Когда удаленных ключей становится много, таблица перестраивается и публикуется заново
+     */
+    private volatile IdentityIndex index;
+    private final ReentrantLock indexLock;
+
+    /**
+     * Разрешения на выдачу: maxSize минус количество выданных объектов
+     */
+    private final Semaphore permits;
+
+    /**
+     * Возврат объектов, "припаркованных" владельцем пула вне его (null - нет такого владельца).
+     * Вызывается перед ожиданием и периодически во время него, см. {@link #setReclaimer(Runnable)}
+     */
+    private volatile Runnable reclaimer;
+
+    /**
+     * Минимальное количество объектов, которое должно быть создано при инициализации пула
+     */
+    private final int minSize;
+
+    /**
+     * Максимальное количество объектов (количество слотов)
+     */
+    private final int maxSize;
+
+    /**
+     * Флаг состояния пула (false - работает, true - закрыт)
+     */
+    private final AtomicBoolean closed;
+
+    // Статистика использования пула (LongAdder и гистограммы не выделяют память в установившемся режиме)
+
+    private final LongAdder totalAcquires;
+    private final LongAdder totalReleases;
+    private final LongAdder timeoutCount;
+    private final LongAdder totalWaitTime;
+    private final LatencyHistogram acquireWaitHistogram;
+    private final LatencyHistogram holdTimeHistogram;
+    private final LatencyHistogram createTimeHistogram;
+    private final LatencyHistogram validateTimeHistogram;
+
+    /**
+     * Создать пул с заданными параметрами.
+     *
+     * @param factory фабрика для создания объектов
+     * @param minSize минимальное количество объектов (eager initialization)
+     * @param maxSize максимальное количество объектов (количество слотов)
+     */
+    public SlotItemPool(ItemFactory<T> factory, int minSize, int maxSize) {
+        if (minSize < 0 || maxSize < minSize || maxSize == 0) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+
+        this.factory = factory;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.items = new AtomicReferenceArray<>(maxSize);
+        this.states = new AtomicIntegerArray(maxSize);
+        this.acquireNanos = new AtomicLongArray(maxSize);
+
+        this.index = new IdentityIndex(Integer.highestOneBit(maxSize * 4 - 1) << 1);
+        this.indexLock = new ReentrantLock();
+
+        this.permits = new Semaphore(maxSize);
+        this.closed = new AtomicBoolean(false);
+
+        this.totalAcquires = new LongAdder();
+        this.totalReleases = new LongAdder();
+        this.timeoutCount = new LongAdder();
+        this.totalWaitTime = new LongAdder();
+        this.acquireWaitHistogram = new LatencyHistogram();
+        this.holdTimeHistogram = new LatencyHistogram();
+        this.createTimeHistogram = new LatencyHistogram();
+        this.validateTimeHistogram = new LatencyHistogram();
+
+        // Eager initialization - заполняем первые minSize слотов
+        initializeMinObjects();
+    }
+
+    private void initializeMinObjects() {
+        for (int slot = 0; slot < minSize; slot++) {
+            try {
+                states.set(slot, RESERVED);
+                install(slot, newObject());
+                states.set(slot, FREE);
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to initialize pool", e);
+            }
+        }
+    }
+
+    @Override
+    public T acquire(long timeoutMs) throws InterruptedException {
+        if (closed.get()) {
+            throw new IllegalStateException("Пул закрыт");
+        }
+
+        long startNanos = System.nanoTime();
+        totalAcquires.increment();
+
+        // 1. Разрешение гарантирует, что найдется свободный или пустой слот
+        if (!permits.tryAcquire() && !awaitPermit(timeoutMs)) {
+            timeoutCount.increment();
+            return null;
+        }
+
+        try {
+            while (true) {
+                // 2. Свободный объект, начиная с "домашнего" слота потока
+                int slot = claim(FREE);
+                if (slot >= 0) {
+                    if (validate(items.get(slot))) {
+                        return finalizeAcquire(slot, startNanos);
+                    }
+                    // Невалидный объект уничтожаем, слот становится пустым, разрешение остается у нас
+                    destroySlot(slot);
+                    continue;
+                }
+
+                // 3. Свободных нет - занимаем пустой слот и создаем объект
+                slot = claim(EMPTY);
+                if (slot >= 0) {
+                    try {
+                        install(slot, newObject());
+                    } catch (RuntimeException e) {
+                        states.set(slot, EMPTY);
+                        throw e;
+                    }
+                    return finalizeAcquire(slot, startNanos);
+                }
+
+                // Свободный или пустой слот сейчас в переходном состоянии у другого потока - повторяем
+                Thread.onSpinWait();
+            }
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Дождаться разрешения. Если задан reclaimer, он вызывается перед ожиданием и каждые
+     * RECLAIM_INTERVAL_NANOS во время него: объект, "припаркованный" уже после первого вызова, тоже вернется.
+     */
+    private boolean awaitPermit(long timeoutMs) throws InterruptedException {
+        Runnable reclaim = reclaimer;
+        if (reclaim == null) {
+            return permits.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+
+        // toNanos насыщается до Long.MAX_VALUE, а разность deadline - nanoTime() корректна и при переполнении deadline
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (true) {
+            reclaim.run();
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return permits.tryAcquire();
+            }
+            if (permits.tryAcquire(Math.min(remaining, RECLAIM_INTERVAL_NANOS), TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Задать возврат объектов, которые владелец пула держит вне него (например, в кэшах потоков)
+     * и которые пул считает выданными. Без этого поток может ждать, пока свободные объекты лежат в чужом кэше.
+     */
+    void setReclaimer(Runnable reclaimer) {
+        this.reclaimer = reclaimer;
+    }
+
+    /**
+     * Найти слот в заданном состоянии и перевести его CAS-ом в IN_USE (для FREE) или RESERVED (для EMPTY).
+     *
+     * @return индекс слота или -1, если подходящих слотов нет
+     */
+    private int claim(int expected) {
+        int target = expected == FREE ? IN_USE : RESERVED;
+        int start = homeSlot();
+        for (int i = 0; i < maxSize; i++) {
+            int slot = start + i;
+            if (slot >= maxSize) {
+                slot -= maxSize;
+            }
+            if (states.get(slot) == expected && states.compareAndSet(slot, expected, target)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private T newObject() {
+        long start = System.nanoTime();
+        T object = factory.create(this);
+        createTimeHistogram.record(System.nanoTime() - start);
+        return object;
+    }
+
+    private boolean validate(T object) {
+        long start = System.nanoTime();
+        boolean valid = factory.validate(object);
+        validateTimeHistogram.record(System.nanoTime() - start);
+        return valid;
+    }
+
+    private T finalizeAcquire(int slot, long startNanos) {
+        long now = System.nanoTime();
+        acquireNanos.set(slot, now);
+        states.set(slot, IN_USE);
+        totalWaitTime.add(now - startNanos);
+        acquireWaitHistogram.record(now - startNanos);
+        return items.get(slot);
+    }
+
+    @Override
+    public void release(T object) {
+        if (object == null) {
+            throw new IllegalArgumentException("Нельзя вернуть null объект");
+        }
+
+        // Проверяем принадлежность по индексу слота: объект должен быть нашим и выданным
+        int slot = slotOf(object);
+        if (slot < 0 || !states.compareAndSet(slot, IN_USE, RESERVED)) {
+            throw new IllegalArgumentException("Объект не принадлежит этому пулу");
+        }
+
+        totalReleases.increment();
+        holdTimeHistogram.record(System.nanoTime() - acquireNanos.get(slot));
+
+        try {
+            // Сбрасываем состояние объекта для чистого повторного использования
+            factory.reset(object);
+
+            if (closed.get()) {
+                // Пул закрывается, лишние объекты не нужны
+                destroySlot(slot);
+            } else {
+                states.set(slot, FREE);
+            }
+        } catch (Exception e) {
+            // Если сброс не удался, лучше уничтожить объект от греха подальше
+            destroySlot(slot);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Поместить созданный объект в зарезервированный слот и зарегистрировать его в identity-таблице.
+     */
+    private void install(int slot, T object) {
+        items.set(slot, object);
+        indexLock.lock();
+        try {
+            index.put(object, slot);
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    /**
+     * Уничтожить объект зарезервированного (RESERVED) или выданного слота и освободить слот.
+     */
+    private void destroySlot(int slot) {
+        T object = items.get(slot);
+        try {
+            factory.destroy(object);
+        } catch (Exception e) {
+            System.err.println("Ошибка при уничтожении объекта: " + e.getMessage());
+        } finally {
+            indexLock.lock();
+            try {
+                IdentityIndex current = index;
+                if (current.remove(object) && current.needsRehash()) {
+                    // Удаленные ключи только удлиняют поиск - перестраиваем таблицу без них
+                    index = current.rehash();
+                }
+            } finally {
+                indexLock.unlock();
+            }
+            items.set(slot, null);
+            states.set(slot, EMPTY);
+        }
+    }
+
+    /**
+     * Выдан ли объект этим пулом и еще не возвращен (проверка по ссылке, без аллокаций).
+     */
+    boolean isInUse(T object) {
+        int slot = slotOf(object);
+        return slot >= 0 && states.get(slot) == IN_USE;
+    }
+
+    private int slotOf(T object) {
+        int slot = index.get(object);
+        // Читатель мог взять таблицу до перестройки: сверяем, что в слоте все еще этот объект
+        return slot >= 0 && items.get(slot) == object ? slot : -1;
+    }
+
+    private int homeSlot() {
+        long id = Thread.currentThread().threadId();
+        return (int) Long.remainderUnsigned(id * 0x9E3779B97F4A7C15L, maxSize);
+    }
+
+    @Override
+    public PoolStatistics getStatistics() {
+        return buildStatistics(false);
+    }
+
+    @Override
+    public PoolStatistics getStatisticsAndReset() {
+        return buildStatistics(true);
+    }
+
+    private PoolStatistics buildStatistics(boolean reset) {
+        int available = 0;
+        int inUse = 0;
+        int total = 0;
+        for (int slot = 0; slot < maxSize; slot++) {
+            int state = states.get(slot);
+            if (state == FREE) {
+                available++;
+            } else if (state == IN_USE) {
+                inUse++;
+            }
+            if (state != EMPTY) {
+                total++;
+            }
+        }
+
+        long acquires = totalAcquires.sum();
+        long avgWaitTime = acquires > 0 ? TimeUnit.NANOSECONDS.toMillis(totalWaitTime.sum() / acquires) : 0;
+
+        return new PoolStatistics(
+            total,
+            available,
+            inUse,
+            acquires,
+            totalReleases.sum(),
+            timeoutCount.sum(),
+            avgWaitTime,
+            reset ? acquireWaitHistogram.snapshotAndReset() : acquireWaitHistogram.snapshot(),
+            reset ? holdTimeHistogram.snapshotAndReset() : holdTimeHistogram.snapshot(),
+            reset ? createTimeHistogram.snapshotAndReset() : createTimeHistogram.snapshot(),
+            reset ? validateTimeHistogram.snapshotAndReset() : validateTimeHistogram.snapshot()
+        );
+    }
+
+    /**
+     * Identity-таблица с открытой адресацией. Изменяется только под indexLock, читается без блокировок.
+     */
+    private static final class IdentityIndex {
+        private final AtomicReferenceArray<Object> keys;
+        private final AtomicIntegerArray slots;
+        private final int mask;
+
+        /**
+         * Количество удаленных ключей (меняется только под indexLock)
+         */
+        private int tombstones;
+
+        private IdentityIndex(int capacity) {
+            this.keys = new AtomicReferenceArray<>(capacity);
+            this.slots = new AtomicIntegerArray(capacity);
+            this.mask = capacity - 1;
+        }
+
+        private void put(Object object, int slot) {
+            int position = position(object);
+            for (int i = 0; i <= mask; i++) {
+                Object key = keys.get(position);
+                if (key == null || key == TOMBSTONE) {
+                    if (key == TOMBSTONE) {
+                        tombstones--;
+                    }
+                    // Слот записывается раньше ключа: читатель, нашедший ключ, видит и слот
+                    slots.set(position, slot);
+                    keys.set(position, object);
+                    return;
+                }
+                position = (position + 1) & mask;
+            }
+            // Живых ключей не больше maxSize, а удаленные вычищаются перестройкой - таблица не переполняется
+            throw new IllegalStateException("Identity index is full");
+        }
+
+        /**
+         * @return true, если ключ найден и помечен удаленным
+         */
+        private boolean remove(Object object) {
+            int position = position(object);
+            for (int i = 0; i <= mask; i++) {
+                Object key = keys.get(position);
+                if (key == null) {
+                    return false;
+                }
+                if (key == object) {
+                    keys.set(position, TOMBSTONE);
+                    tombstones++;
+                    return true;
+                }
+                position = (position + 1) & mask;
+            }
+            return false;
+        }
+
+        /**
+         * @return индекс слота или -1; поиск ограничен размером таблицы, даже если в ней не осталось пустых ячеек
+         */
+        private int get(Object object) {
+            int position = position(object);
+            for (int i = 0; i <= mask; i++) {
+                Object key = keys.get(position);
+                if (key == null) {
+                    return -1;
+                }
+                if (key == object) {
+                    return slots.get(position);
+                }
+                position = (position + 1) & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * Удаленных ключей больше четверти таблицы. Живых не больше четверти (емкость - от 4 * maxSize),
+         * поэтому после каждой перестройки не меньше половины ячеек пусты и поиск остается коротким.
+         */
+        private boolean needsRehash() {
+            return tombstones > (mask + 1) / 4;
+        }
+
+        private IdentityIndex rehash() {
+            IdentityIndex rebuilt = new IdentityIndex(mask + 1);
+            for (int position = 0; position <= mask; position++) {
+                Object key = keys.get(position);
+                if (key != null && key != TOMBSTONE) {
+                    rebuilt.put(key, slots.get(position));
+                }
+            }
+            return rebuilt;
+        }
+
+        private int position(Object object) {
+            int hash = System.identityHashCode(object);
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            // Уничтожаем все свободные объекты
+            for (int slot = 0; slot < maxSize; slot++) {
+                if (states.compareAndSet(slot, FREE, RESERVED)) {
+                    destroySlot(slot);
+                }
+            }
+
+            // ВАЖНО: объекты, которые еще используются, будут уничтожены при release
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package org.gulash.objectpool.pool;
+
+import org.gulash.objectpool.factory.ItemFactory;
+import org.gulash.objectpool.pool.util.PoolStatistics;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Lock-free реализация пула объектов с разбиением свободных объектов на "полосы" (stripes).
+ * <p>
+ * ИДЕЯ:
+ * В {@link BlockingItemPool} все потоки проходят через одну общую очередь, и под высокой
+ * конкуренцией (десятки потоков) голова этой очереди становится горячей точкой.
+ * Здесь каждый поток работает со "своей" полосой (выбирается по id потока),
+ * а при её опустошении "ворует" объекты из соседних полос (work-stealing).
+ * <p>
+ * ОСОБЕННОСТИ:
+ * - Быстрый путь acquire/release не берет ни одной общей блокировки
+ * - Свой поток берет объекты с головы полосы (LIFO, "теплые" объекты), воры - с хвоста
+ * - Рост пула до maxSize через CAS, без synchronized
+ * - Блокирующая очередь передачи используется только когда пул исчерпан и есть ожидающие потоки
+ * - Тот же контракт ItemFactory (validate/reset/destroy) и та же PoolStatistics
+ */
+public class StripedItemPool<T> implements ItemPool<T> {
+
+    /**
+     * Фабрика для создания и управления объектами пула
+     */
+    private final ItemFactory<T> factory;
+
+    /**
+     * Полосы свободных объектов. Размер массива - степень двойки.
+     */
+    private final ConcurrentLinkedDeque<T>[] stripes;
+
+    /**
+     * Маска для быстрого выбора полосы по хешу потока
+     */
+    private final int stripeMask;
+
+    /**
+     * Очередь прямой передачи объектов ожидающим потокам (используется только при исчерпании пула)
+     */
+    private final BlockingQueue<T> handoff;
+
+    /**
+     * Количество потоков, ожидающих объект в очереди передачи
+     */
+    private final AtomicInteger waiters;
+
+    /**
+     * Все созданные пулом объекты (ключ - объект, значение - флаг "выдан клиенту").
+     * Карта меняется только при создании/уничтожении, на быстром пути выполняется лишь чтение и CAS флага.
+     */
+    private final ConcurrentHashMap<T, AtomicBoolean> ownedObjects;
+
+    /**
+     * Минимальное количество объектов, которое должно быть создано при инициализации пула
+     */
+    private final int minSize;
+
+    /**
+     * Максимальное количество объектов, которое может существовать одновременно
+     */
+    private final int maxSize;
+
+    /**
+     * Текущее общее количество созданных объектов (свободные + используемые)
+     */
+    private final AtomicInteger currentSize;
+
+    /**
+     * Флаг состояния пула (false - работает, true - закрыт)
+     */
+    private final AtomicBoolean closed;
+
+    // Статистика использования пула (LongAdder - чтобы счетчики сами не стали точкой конкуренции)
+
+    private final LongAdder inUseCount;
+    private final LongAdder totalAcquires;
+    private final LongAdder totalReleases;
+    private final LongAdder timeoutCount;
+    private final LongAdder totalWaitTime;
+
+    /**
+     * Создать пул с количеством полос по числу процессоров.
+     *
+     * @param factory фабрика для создания объектов
+     * @param minSize минимальное количество объектов (eager initialization)
+     * @param maxSize максимальное количество объектов
+     */
+    public StripedItemPool(ItemFactory<T> factory, int minSize, int maxSize) {
+        this(factory, minSize, maxSize, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Создать пул с заданным количеством полос.
+     *
+     * @param factory     фабрика для создания объектов
+     * @param minSize     минимальное количество объектов (eager initialization)
+     * @param maxSize     максимальное количество объектов
+     * @param stripeCount желаемое количество полос (округляется вверх до степени двойки)
+     */
+    public StripedItemPool(ItemFactory<T> factory, int minSize, int maxSize, int stripeCount) {
+        if (minSize < 0 || maxSize < minSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Invalid stripe count: " + stripeCount);
+        }
+
+        int size = Integer.highestOneBit(stripeCount);
+        if (size < stripeCount) {
+            size <<= 1;
+        }
+
+        this.factory = factory;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        // Массив параметризованного типа создать нельзя - только "сырой" с непроверяемым приведением
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        ConcurrentLinkedDeque<T>[] stripes = new ConcurrentLinkedDeque[size];
+        this.stripes = stripes;
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ConcurrentLinkedDeque<>();
+        }
+        this.stripeMask = size - 1;
+        this.handoff = new LinkedBlockingQueue<>();
+        this.waiters = new AtomicInteger(0);
+        this.ownedObjects = new ConcurrentHashMap<>();
+        this.currentSize = new AtomicInteger(0);
+        this.closed = new AtomicBoolean(false);
+
+        this.inUseCount = new LongAdder();
+        this.totalAcquires = new LongAdder();
+        this.totalReleases = new LongAdder();
+        this.timeoutCount = new LongAdder();
+        this.totalWaitTime = new LongAdder();
+
+        // Eager initialization - раскладываем минимальное количество объектов по полосам
+        initializeMinObjects();
+    }
+
+    private void initializeMinObjects() {
+        for (int i = 0; i < minSize; i++) {
+            try {
+                T object = factory.create(this);
+                ownedObjects.put(object, new AtomicBoolean(false));
+                currentSize.incrementAndGet();
+                stripes[i & stripeMask].offerFirst(object);
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to initialize pool", e);
+            }
+        }
+    }
+
+    @Override
+    public T acquire(long timeoutMs) throws InterruptedException {
+        if (closed.get()) {
+            throw new IllegalStateException("Пул закрыт");
+        }
+
+        long startTime = System.currentTimeMillis();
+        // toNanos насыщается на Long.MAX_VALUE, а разность "deadline - nanoTime()" верна и при переполнении суммы
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        totalAcquires.increment();
+
+        while (true) {
+            // 1. Быстрый путь: своя полоса, затем кража у соседей
+            T object = pollAny();
+
+            // 2. Свободных нет - пробуем вырасти через CAS
+            if (object == null) {
+                object = tryCreate();
+                if (object != null) {
+                    finalizeAcquire(object, startTime);
+                    return object;
+                }
+            }
+
+            // 3. Пул исчерпан - ждем передачи объекта от release
+            if (object == null) {
+                object = awaitHandoff(deadline);
+                if (object == null) {
+                    timeoutCount.increment();
+                    return null;
+                }
+            }
+
+            // 4. Валидация объекта перед выдачей (повтор - итеративный, в пределах того же дедлайна)
+            if (factory.validate(object)) {
+                finalizeAcquire(object, startTime);
+                return object;
+            }
+            destroyObject(object);
+        }
+    }
+
+    /**
+     * Взять свободный объект: сначала из своей полосы (с головы), затем из чужих (с хвоста).
+     */
+    private T pollAny() {
+        int home = homeStripe();
+        T object = stripes[home].pollFirst();
+        if (object != null) {
+            return object;
+        }
+        for (int i = 1; i <= stripeMask; i++) {
+            object = stripes[(home + i) & stripeMask].pollLast();
+            if (object != null) {
+                return object;
+            }
+        }
+        // Объекты, переданные ожидающим потокам, но не забранные ими (например, по тайм-ауту)
+        return handoff.poll();
+    }
+
+    /**
+     * Зарезервировать место через CAS и создать новый объект вне каких-либо блокировок.
+     */
+    private T tryCreate() {
+        int size;
+        do {
+            size = currentSize.get();
+            if (size >= maxSize) {
+                return null;
+            }
+        } while (!currentSize.compareAndSet(size, size + 1));
+
+        try {
+            T object = factory.create(this);
+            ownedObjects.put(object, new AtomicBoolean(false));
+            return object;
+        } catch (RuntimeException e) {
+            currentSize.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private T awaitHandoff(long deadline) throws InterruptedException {
+        waiters.incrementAndGet();
+        try {
+            // Повторный просмотр после регистрации: release, не увидевший нас, уже положил объект в полосу,
+            // а уничтожение, не увидевшее нас, освободило место
+            T object = pollAny();
+            if (object == null) {
+                object = tryCreate();
+            }
+            if (object != null) {
+                return object;
+            }
+            long remaining = deadline - System.nanoTime();
+            return remaining > 0 ? handoff.poll(remaining, TimeUnit.NANOSECONDS) : null;
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    private void finalizeAcquire(T object, long startTime) {
+        ownedObjects.get(object).set(true);
+        inUseCount.increment();
+        totalWaitTime.add(System.currentTimeMillis() - startTime);
+    }
+
+    private void destroyObject(T object) {
+        try {
+            factory.destroy(object);
+        } catch (Exception e) {
+            System.err.println("Ошибка при уничтожении объекта: " + e.getMessage());
+        } finally {
+            ownedObjects.remove(object);
+            currentSize.decrementAndGet();
+        }
+        replaceForWaiters();
+    }
+
+    /**
+     * Место уничтоженного объекта освободилось: если кто-то ждет, создаем замену и передаем ему.
+     * Иначе ожидающий проспал бы до тайм-аута - release, который его разбудил бы, может не наступить.
+     * Порядок "освободить место, затем проверить ожидающих" парный к "встать в ожидающие, затем tryCreate".
+     */
+    private void replaceForWaiters() {
+        if (closed.get() || waiters.get() == 0) {
+            return;
+        }
+        try {
+            T replacement = tryCreate();
+            if (replacement != null) {
+                handoff.offer(replacement);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Ошибка при создании замены уничтоженного объекта: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void release(T object) {
+        if (object == null) {
+            throw new IllegalArgumentException("Нельзя вернуть null объект");
+        }
+
+        // Проверяем, что объект принадлежит этому пулу и действительно был выдан
+        AtomicBoolean inUse = ownedObjects.get(object);
+        if (inUse == null || !inUse.compareAndSet(true, false)) {
+            throw new IllegalArgumentException("Объект не принадлежит этому пулу");
+        }
+
+        inUseCount.decrement();
+        totalReleases.increment();
+
+        try {
+            // Сбрасываем состояние объекта для чистого повторного использования
+            factory.reset(object);
+
+            if (closed.get()) {
+                // Пул закрывается, лишние объекты не нужны
+                destroyObject(object);
+                return;
+            }
+
+            // Возвращаем в свою полосу (с головы - следующий acquire этого потока получит "теплый" объект)
+            stripes[homeStripe()].offerFirst(object);
+
+            // Если кто-то ждет - перекладываем любой свободный объект в очередь передачи.
+            // Порядок "положить, затем проверить ожидающих" исключает потерянное пробуждение.
+            if (waiters.get() > 0) {
+                T spare = pollAny();
+                if (spare != null) {
+                    handoff.offer(spare);
+                }
+            }
+        } catch (Exception e) {
+            // Если сброс не удался, лучше уничтожить объект от греха подальше
+            destroyObject(object);
+        }
+    }
+
+    private int homeStripe() {
+        long id = Thread.currentThread().threadId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & stripeMask;
+    }
+
+    private int availableCount() {
+        int count = handoff.size();
+        for (ConcurrentLinkedDeque<T> stripe : stripes) {
+            count += stripe.size();
+        }
+        return count;
+    }
+
+    @Override
+    public PoolStatistics getStatistics() {
+        long acquires = totalAcquires.sum();
+        long avgWaitTime = acquires > 0 ? totalWaitTime.sum() / acquires : 0;
+
+        return new PoolStatistics(
+            currentSize.get(),
+            availableCount(),
+            (int) inUseCount.sum(),
+            acquires,
+            totalReleases.sum(),
+            timeoutCount.sum(),
+            avgWaitTime
+        );
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            // Уничтожаем все доступные объекты
+            T object;
+            while ((object = pollAny()) != null) {
+                destroyObject(object);
+            }
+
+            // ВАЖНО: объекты, которые еще используются, будут уничтожены при release
+        }
+    }
+}
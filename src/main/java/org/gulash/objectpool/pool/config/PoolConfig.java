@@ -0,0 +1,361 @@
+package org.gulash.objectpool.pool.config;
+
+/**
+ * Настройки пула объектов.
+ * Создается через статический вложенный {@link Builder}: обязательные параметры (размеры пула)
+ * передаются в конструктор строителя, необязательные режимы включаются цепочкой вызовов.
+ *
+ * <pre>{@code
+ * PoolConfig config = new PoolConfig.Builder(2, 10)
+ *         .setThreadAffinity(true)
+ *         .build();
+ * }</pre>
+ */
+public class PoolConfig {
+    // Обязательные параметры
+    private final int minSize;
+    private final int maxSize;
+
+    // Необязательные параметры
+    private final String poolName;
+    private final boolean jmxEnabled;
+    private final boolean threadAffinity;
+    private final boolean fairHandoff;
+    private final int minIdle;
+    private final long maintenanceIntervalMs;
+    private final long idleTimeoutMs;
+    private final long maxLifetimeMs;
+    private final long leakDetectionThresholdMs;
+    private final double leakTraceSampleRate;
+    private final int creationFailureThreshold;
+    private final long creationBackoffMs;
+    private final long creationMaxBackoffMs;
+    private final boolean failFastOnCreationOutage;
+    private final int maxWaiters;
+    private final ValidationStrategy validationStrategy;
+    private final long validationIdleThresholdMs;
+
+    private PoolConfig(Builder builder) {
+        this.minSize = builder.minSize;
+        this.maxSize = builder.maxSize;
+        this.poolName = builder.poolName;
+        this.jmxEnabled = builder.jmxEnabled;
+        this.threadAffinity = builder.threadAffinity;
+        this.fairHandoff = builder.fairHandoff;
+        this.minIdle = builder.minIdle;
+        this.maintenanceIntervalMs = builder.maintenanceIntervalMs;
+        this.idleTimeoutMs = builder.idleTimeoutMs;
+        this.maxLifetimeMs = builder.maxLifetimeMs;
+        this.leakDetectionThresholdMs = builder.leakDetectionThresholdMs;
+        this.leakTraceSampleRate = builder.leakTraceSampleRate;
+        this.creationFailureThreshold = builder.creationFailureThreshold;
+        this.creationBackoffMs = builder.creationBackoffMs;
+        this.creationMaxBackoffMs = builder.creationMaxBackoffMs;
+        this.failFastOnCreationOutage = builder.failFastOnCreationOutage;
+        this.maxWaiters = builder.maxWaiters;
+        this.validationStrategy = builder.validationStrategy;
+        this.validationIdleThresholdMs = builder.validationIdleThresholdMs;
+    }
+
+    /**
+     * Минимальное количество объектов, создаваемых при инициализации пула.
+     */
+    public int getMinSize() { return minSize; }
+
+    /**
+     * Максимальное количество объектов, которое может существовать одновременно.
+     */
+    public int getMaxSize() { return maxSize; }
+
+    /**
+     * Имя пула для мониторинга (null - имя сгенерируется автоматически: pool-1, pool-2, ...).
+     */
+    public String getPoolName() { return poolName; }
+
+    /**
+     * Регистрировать ли пул как MXBean в платформенном MBeanServer (по умолчанию - да).
+     */
+    public boolean isJmxEnabled() { return jmxEnabled; }
+
+    /**
+     * Режим привязки к потоку: последний возвращенный потоком объект "паркуется"
+     * в thread-local слоте и выдается этому же потоку при следующем acquire без обращения к общей очереди.
+     */
+    public boolean isThreadAffinity() { return threadAffinity; }
+
+    /**
+     * Справедливый режим: release передает объект напрямую самому давно ожидающему потоку (FIFO),
+     * а новые потоки не могут обогнать ожидающих ни за готовым объектом, ни за созданием нового.
+     * Ограничивает хвостовые задержки acquire при исчерпании пула ценой небольшой потери пропускной способности.
+     */
+    public boolean isFairHandoff() { return fairHandoff; }
+
+    /**
+     * Сколько свободных объектов фоновый поток обслуживания держит наготове (0 - прогрев выключен).
+     * Фоновый поток также заменяет уничтоженные объекты и заранее "отправляет на пенсию"
+     * объекты, для которых {@code ItemFactory.shouldRetire} вернул true.
+     */
+    public int getMinIdle() { return minIdle; }
+
+    /**
+     * Период запуска фонового обслуживания пула в миллисекундах.
+     */
+    public long getMaintenanceIntervalMs() { return maintenanceIntervalMs; }
+
+    /**
+     * Через сколько миллисекунд простоя свободный объект вытесняется, пока пул больше minSize/minIdle (0 - не вытеснять).
+     * Позволяет пулу "сжиматься" после пиков нагрузки.
+     */
+    public long getIdleTimeoutMs() { return idleTimeoutMs; }
+
+    /**
+     * Максимальное время жизни объекта в миллисекундах (0 - без ограничения).
+     * Отживший объект уничтожается при возврате или фоновой проверке и заменяется новым.
+     */
+    public long getMaxLifetimeMs() { return maxLifetimeMs; }
+
+    /**
+     * Порог удержания объекта клиентом, после которого в лог выводится предупреждение о возможной утечке (0 - выключено).
+     */
+    public long getLeakDetectionThresholdMs() { return leakDetectionThresholdMs; }
+
+    /**
+     * Доля acquire (от 0 до 1), для которых сохраняется стек вызова, чтобы показать его в предупреждении об утечке.
+     */
+    public double getLeakTraceSampleRate() { return leakTraceSampleRate; }
+
+    /**
+     * Сколько ошибок создания объекта подряд размыкают предохранитель создания (0 - предохранитель выключен).
+     * Пока предохранитель разомкнут, пул не создает объекты, а раз в период отката пробует создать один.
+     */
+    public int getCreationFailureThreshold() { return creationFailureThreshold; }
+
+    /**
+     * Начальный период отката предохранителя создания в миллисекундах (удваивается после каждой неудачной пробы).
+     */
+    public long getCreationBackoffMs() { return creationBackoffMs; }
+
+    /**
+     * Максимальный период отката предохранителя создания в миллисекундах.
+     */
+    public long getCreationMaxBackoffMs() { return creationMaxBackoffMs; }
+
+    /**
+     * Поведение acquire при разомкнутом предохранителе, если свободных объектов нет:
+     * true - сразу бросить исключение, false - ждать освобождения уже существующих объектов.
+     */
+    public boolean isFailFastOnCreationOutage() { return failFastOnCreationOutage; }
+
+    /**
+     * Сколько запросов могут одновременно ждать освобождения объекта (0 - без ограничения).
+     * Запрос сверх лимита сразу отклоняется {@link java.util.concurrent.RejectedExecutionException}
+     * вместо ожидания тайм-аута: перегрузка сбрасывается быстро, а не копится в очереди.
+     */
+    public int getMaxWaiters() { return maxWaiters; }
+
+    /**
+     * Когда проверять объекты через {@code ItemFactory.validate} (по умолчанию - при каждой выдаче).
+     */
+    public ValidationStrategy getValidationStrategy() { return validationStrategy; }
+
+    /**
+     * Для {@link ValidationStrategy#IF_IDLE}: объект, простаивавший меньше этого времени (в миллисекундах),
+     * выдается без проверки.
+     */
+    public long getValidationIdleThresholdMs() { return validationIdleThresholdMs; }
+
+    /**
+     * Строитель с теми же настройками - чтобы получить копию, отличающуюся несколькими параметрами.
+     */
+    public Builder toBuilder() {
+        Builder builder = new Builder(minSize, maxSize);
+        builder.poolName = poolName;
+        builder.jmxEnabled = jmxEnabled;
+        builder.threadAffinity = threadAffinity;
+        builder.fairHandoff = fairHandoff;
+        builder.minIdle = minIdle;
+        builder.maintenanceIntervalMs = maintenanceIntervalMs;
+        builder.idleTimeoutMs = idleTimeoutMs;
+        builder.maxLifetimeMs = maxLifetimeMs;
+        builder.leakDetectionThresholdMs = leakDetectionThresholdMs;
+        builder.leakTraceSampleRate = leakTraceSampleRate;
+        builder.creationFailureThreshold = creationFailureThreshold;
+        builder.creationBackoffMs = creationBackoffMs;
+        builder.creationMaxBackoffMs = creationMaxBackoffMs;
+        builder.failFastOnCreationOutage = failFastOnCreationOutage;
+        builder.maxWaiters = maxWaiters;
+        builder.validationStrategy = validationStrategy;
+        builder.validationIdleThresholdMs = validationIdleThresholdMs;
+        return builder;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolConfig{" +
+                "minSize=" + minSize +
+                ", maxSize=" + maxSize +
+                ", poolName=" + poolName +
+                ", jmxEnabled=" + jmxEnabled +
+                ", threadAffinity=" + threadAffinity +
+                ", fairHandoff=" + fairHandoff +
+                ", minIdle=" + minIdle +
+                ", maintenanceIntervalMs=" + maintenanceIntervalMs +
+                ", idleTimeoutMs=" + idleTimeoutMs +
+                ", maxLifetimeMs=" + maxLifetimeMs +
+                ", leakDetectionThresholdMs=" + leakDetectionThresholdMs +
+                ", leakTraceSampleRate=" + leakTraceSampleRate +
+                ", creationFailureThreshold=" + creationFailureThreshold +
+                ", creationBackoffMs=" + creationBackoffMs +
+                ", creationMaxBackoffMs=" + creationMaxBackoffMs +
+                ", failFastOnCreationOutage=" + failFastOnCreationOutage +
+                ", maxWaiters=" + maxWaiters +
+                ", validationStrategy=" + validationStrategy +
+                ", validationIdleThresholdMs=" + validationIdleThresholdMs +
+                '}';
+    }
+
+    /**
+     * Строитель настроек пула.
+     */
+    public static class Builder {
+        // Обязательные параметры
+        private final int minSize;
+        private final int maxSize;
+
+        // Необязательные параметры - инициализированы значениями по умолчанию
+        private String poolName = null;
+        private boolean jmxEnabled = true;
+        private boolean threadAffinity = false;
+        private boolean fairHandoff = false;
+        private int minIdle = 0;
+        private long maintenanceIntervalMs = 1000;
+        private long idleTimeoutMs = 0;
+        private long maxLifetimeMs = 0;
+        private long leakDetectionThresholdMs = 0;
+        private double leakTraceSampleRate = 1.0;
+        private int creationFailureThreshold = 0;
+        private long creationBackoffMs = 100;
+        private long creationMaxBackoffMs = 30_000;
+        private boolean failFastOnCreationOutage = false;
+        private int maxWaiters = 0;
+        private ValidationStrategy validationStrategy = ValidationStrategy.ON_BORROW;
+        private long validationIdleThresholdMs = 500;
+
+        public Builder(int minSize, int maxSize) {
+            this.minSize = minSize;
+            this.maxSize = maxSize;
+        }
+
+        public Builder setPoolName(String poolName) {
+            this.poolName = poolName;
+            return this;
+        }
+
+        public Builder setJmxEnabled(boolean jmxEnabled) {
+            this.jmxEnabled = jmxEnabled;
+            return this;
+        }
+
+        public Builder setThreadAffinity(boolean threadAffinity) {
+            this.threadAffinity = threadAffinity;
+            return this;
+        }
+
+        public Builder setFairHandoff(boolean fairHandoff) {
+            this.fairHandoff = fairHandoff;
+            return this;
+        }
+
+        public Builder setMinIdle(int minIdle) {
+            this.minIdle = minIdle;
+            return this;
+        }
+
+        public Builder setMaintenanceIntervalMs(long maintenanceIntervalMs) {
+            this.maintenanceIntervalMs = maintenanceIntervalMs;
+            return this;
+        }
+
+        public Builder setIdleTimeoutMs(long idleTimeoutMs) {
+            this.idleTimeoutMs = idleTimeoutMs;
+            return this;
+        }
+
+        public Builder setMaxLifetimeMs(long maxLifetimeMs) {
+            this.maxLifetimeMs = maxLifetimeMs;
+            return this;
+        }
+
+        public Builder setLeakDetectionThresholdMs(long leakDetectionThresholdMs) {
+            this.leakDetectionThresholdMs = leakDetectionThresholdMs;
+            return this;
+        }
+
+        public Builder setLeakTraceSampleRate(double leakTraceSampleRate) {
+            this.leakTraceSampleRate = leakTraceSampleRate;
+            return this;
+        }
+
+        public Builder setCreationFailureThreshold(int creationFailureThreshold) {
+            this.creationFailureThreshold = creationFailureThreshold;
+            return this;
+        }
+
+        public Builder setCreationBackoffMs(long creationBackoffMs, long creationMaxBackoffMs) {
+            this.creationBackoffMs = creationBackoffMs;
+            this.creationMaxBackoffMs = creationMaxBackoffMs;
+            return this;
+        }
+
+        public Builder setFailFastOnCreationOutage(boolean failFastOnCreationOutage) {
+            this.failFastOnCreationOutage = failFastOnCreationOutage;
+            return this;
+        }
+
+        public Builder setMaxWaiters(int maxWaiters) {
+            this.maxWaiters = maxWaiters;
+            return this;
+        }
+
+        public Builder setValidationStrategy(ValidationStrategy validationStrategy) {
+            this.validationStrategy = validationStrategy;
+            return this;
+        }
+
+        public Builder setValidationIdleThresholdMs(long validationIdleThresholdMs) {
+            this.validationIdleThresholdMs = validationIdleThresholdMs;
+            return this;
+        }
+
+        public PoolConfig build() {
+            if (minSize < 0 || maxSize < minSize) {
+                throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+            }
+            if (minIdle < 0 || minIdle > maxSize) {
+                throw new IllegalArgumentException("Invalid minIdle: " + minIdle + " (max=" + maxSize + ")");
+            }
+            if (maintenanceIntervalMs <= 0) {
+                throw new IllegalArgumentException("Invalid maintenance interval: " + maintenanceIntervalMs);
+            }
+            if (idleTimeoutMs < 0 || maxLifetimeMs < 0 || leakDetectionThresholdMs < 0) {
+                throw new IllegalArgumentException("Timeouts must not be negative: idle=" + idleTimeoutMs
+                    + ", lifetime=" + maxLifetimeMs + ", leak=" + leakDetectionThresholdMs);
+            }
+            if (leakTraceSampleRate < 0 || leakTraceSampleRate > 1) {
+                throw new IllegalArgumentException("Invalid leak trace sample rate: " + leakTraceSampleRate);
+            }
+            if (creationFailureThreshold < 0 || creationBackoffMs <= 0 || creationMaxBackoffMs < creationBackoffMs) {
+                throw new IllegalArgumentException("Invalid creation circuit breaker settings: threshold=" + creationFailureThreshold
+                    + ", backoff=" + creationBackoffMs + ", maxBackoff=" + creationMaxBackoffMs);
+            }
+            if (maxWaiters < 0) {
+                throw new IllegalArgumentException("Invalid maxWaiters: " + maxWaiters);
+            }
+            if (validationStrategy == null || validationIdleThresholdMs < 0) {
+                throw new IllegalArgumentException("Invalid validation settings: strategy=" + validationStrategy
+                    + ", idleThreshold=" + validationIdleThresholdMs);
+            }
+            return new PoolConfig(this);
+        }
+    }
+}
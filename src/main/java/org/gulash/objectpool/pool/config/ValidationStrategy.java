@@ -0,0 +1,33 @@
+package org.gulash.objectpool.pool.config;
+
+/**
+ * Когда пул проверяет объекты через {@code ItemFactory.validate}.
+ * <p>
+ * Для реальных соединений валидация - это сетевой запрос, поэтому проверка при каждой выдаче
+ * может стоить дороже самой полезной работы. Остальные стратегии переносят проверку туда,
+ * где она не задерживает клиента, или пропускают ее для "горячих" объектов.
+ */
+public enum ValidationStrategy {
+    /**
+     * Проверять при каждой выдаче (самый надежный и самый дорогой вариант, по умолчанию).
+     */
+    ON_BORROW,
+
+    /**
+     * Проверять при выдаче, только если объект простаивал дольше порога
+     * ({@link PoolConfig#getValidationIdleThresholdMs()}). Для "горячих" объектов проверка сводится
+     * к сравнению времени последнего возврата.
+     */
+    IF_IDLE,
+
+    /**
+     * Проверять при возврате в пул: невалидный объект уничтожается сразу, и следующий клиент его не получит.
+     */
+    ON_RELEASE,
+
+    /**
+     * Проверять свободные объекты в фоне при каждом проходе обслуживания пула
+     * ({@link PoolConfig#getMaintenanceIntervalMs()}), не задерживая acquire.
+     */
+    BACKGROUND
+}
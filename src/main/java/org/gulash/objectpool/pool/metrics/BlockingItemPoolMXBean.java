@@ -0,0 +1,70 @@
+package org.gulash.objectpool.pool.metrics;
+
+/**
+ * JMX-представление {@link org.gulash.objectpool.pool.BlockingItemPool}: размеры, загрузка, ожидающие запросы,
+ * тайм-ауты и перцентили задержек. Регистрируется под именем
+ * {@code org.gulash.objectpool:type=BlockingItemPool,name=<имя пула>} и видно в JConsole/VisualVM
+ * и любом JMX-экспортере (например, Prometheus JMX exporter).
+ * <p>
+ * Времена - в миллисекундах (с дробной частью). Атрибуты одного опроса берутся из одного снимка статистики,
+ * перцентили считаются за интервал с предыдущего опроса (см. {@link PoolStatisticsSampler}).
+ */
+public interface BlockingItemPoolMXBean {
+
+    String getName();
+
+    int getMinSize();
+
+    int getMaxSize();
+
+    /**
+     * Изменить максимальный размер пула во время работы (например, из JConsole).
+     */
+    void setMaxSize(int maxSize);
+
+    int getTotalObjects();
+
+    int getIdleObjects();
+
+    int getInUseObjects();
+
+    /**
+     * Сколько запросов (синхронных и асинхронных) сейчас ждут освобождения объекта
+     */
+    int getPendingWaiters();
+
+    long getTotalAcquires();
+
+    long getTotalReleases();
+
+    long getTimeoutCount();
+
+    /**
+     * Сколько запросов отклонено без ожидания из-за переполненной очереди ожидающих (maxWaiters)
+     */
+    long getRejectedCount();
+
+    /**
+     * 99-й перцентиль времени в очереди ожидающих (только для запросов, которым пришлось ждать)
+     */
+    double getQueueTimeP99Ms();
+
+    double getAcquireWaitP50Ms();
+
+    double getAcquireWaitP99Ms();
+
+    double getAcquireWaitP999Ms();
+
+    double getAcquireWaitMaxMs();
+
+    double getHoldTimeP99Ms();
+
+    double getCreateTimeP99Ms();
+
+    double getValidateTimeP99Ms();
+
+    /**
+     * Состояние предохранителя создания: CLOSED, OPEN или HALF_OPEN
+     */
+    String getCreationCircuitState();
+}
@@ -0,0 +1,171 @@
+package org.gulash.objectpool.pool.metrics;
+
+import org.gulash.objectpool.pool.BlockingItemPool;
+import org.gulash.objectpool.pool.util.PoolStatistics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Реализация {@link BlockingItemPoolMXBean} поверх статистики пула и ее регистрация в платформенном MBeanServer.
+ * Пул регистрирует себя при создании и снимает регистрацию при закрытии.
+ */
+public class BlockingItemPoolMetrics implements BlockingItemPoolMXBean {
+
+    private static final double NANOS_PER_MS = 1_000_000.0;
+
+    private final BlockingItemPool<?> pool;
+
+    public BlockingItemPoolMetrics(BlockingItemPool<?> pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Зарегистрировать MXBean пула. Ошибка регистрации (например, имя уже занято) не должна мешать работе пула,
+     * поэтому она только выводится в лог.
+     *
+     * @return имя зарегистрированного MXBean или null, если зарегистрировать не удалось
+     */
+    public static ObjectName register(BlockingItemPool<?> pool) {
+        try {
+            ObjectName name = objectName(pool.getName());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new BlockingItemPoolMetrics(pool), name);
+            return name;
+        } catch (InstanceAlreadyExistsException e) {
+            System.err.println("JMX: пул с именем " + pool.getName() + " уже зарегистрирован");
+        } catch (JMException e) {
+            System.err.println("JMX: не удалось зарегистрировать пул " + pool.getName() + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Снять регистрацию MXBean пула.
+     */
+    public static void unregister(ObjectName name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (name != null && server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            System.err.println("JMX: не удалось снять регистрацию " + name + ": " + e.getMessage());
+        }
+    }
+
+    public static ObjectName objectName(String poolName) throws JMException {
+        return new ObjectName("org.gulash.objectpool:type=BlockingItemPool,name=" + ObjectName.quote(poolName));
+    }
+
+    @Override
+    public String getName() {
+        return pool.getName();
+    }
+
+    @Override
+    public int getMinSize() {
+        return pool.getMinSize();
+    }
+
+    @Override
+    public int getMaxSize() {
+        return pool.getMaxSize();
+    }
+
+    @Override
+    public void setMaxSize(int maxSize) {
+        pool.setMaxSize(maxSize);
+    }
+
+    @Override
+    public int getTotalObjects() {
+        return statistics().getTotalObjects();
+    }
+
+    @Override
+    public int getIdleObjects() {
+        return statistics().getAvailableObjects();
+    }
+
+    @Override
+    public int getInUseObjects() {
+        return statistics().getInUseObjects();
+    }
+
+    @Override
+    public int getPendingWaiters() {
+        return pool.getWaitingCount();
+    }
+
+    @Override
+    public long getTotalAcquires() {
+        return statistics().getTotalAcquires();
+    }
+
+    @Override
+    public long getTotalReleases() {
+        return statistics().getTotalReleases();
+    }
+
+    @Override
+    public long getTimeoutCount() {
+        return statistics().getTimeoutCount();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return statistics().getRejectedCount();
+    }
+
+    @Override
+    public double getQueueTimeP99Ms() {
+        return statistics().getQueueTime().getP99Nanos() / NANOS_PER_MS;
+    }
+
+    @Override
+    public double getAcquireWaitP50Ms() {
+        return statistics().getAcquireWait().getP50Nanos() / NANOS_PER_MS;
+    }
+
+    @Override
+    public double getAcquireWaitP99Ms() {
+        return statistics().getAcquireWait().getP99Nanos() / NANOS_PER_MS;
+    }
+
+    @Override
+    public double getAcquireWaitP999Ms() {
+        return statistics().getAcquireWait().getP999Nanos() / NANOS_PER_MS;
+    }
+
+    @Override
+    public double getAcquireWaitMaxMs() {
+        return statistics().getAcquireWait().getMaxNanos() / NANOS_PER_MS;
+    }
+
+    @Override
+    public double getHoldTimeP99Ms() {
+        return statistics().getHoldTime().getP99Nanos() / NANOS_PER_MS;
+    }
+
+    @Override
+    public double getCreateTimeP99Ms() {
+        return statistics().getCreateTime().getP99Nanos() / NANOS_PER_MS;
+    }
+
+    @Override
+    public double getValidateTimeP99Ms() {
+        return statistics().getValidateTime().getP99Nanos() / NANOS_PER_MS;
+    }
+
+    @Override
+    public String getCreationCircuitState() {
+        return pool.getCreationCircuitState().name();
+    }
+
+    private PoolStatistics statistics() {
+        return PoolStatisticsSampler.sample(pool);
+    }
+}
@@ -0,0 +1,133 @@
+package org.gulash.objectpool.pool.metrics;
+
+import org.gulash.objectpool.pool.BlockingItemPool;
+import org.gulash.objectpool.pool.ItemPool;
+import org.gulash.objectpool.pool.util.LatencySnapshot;
+import org.gulash.objectpool.pool.util.PoolStatistics;
+
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Привязка метрик пула к системе мониторинга в стиле Micrometer {@code MeterBinder}, но без зависимости от нее.
+ * <p>
+ * Биндер описывает метрики (имя, описание, теги, функция значения), а регистрирует их переданный
+ * {@link MeterRegistrar} - несколько строк "клея" под конкретную библиотеку. Для Micrometer:
+ *
+ * <pre>{@code
+ * new PoolMetricsBinder("orders-db", pool).bindTo((type, name, description, tags, value) -> {
+ *     Tags micrometerTags = Tags.of(tags.entrySet().stream()
+ *         .map(tag -> Tag.of(tag.getKey(), tag.getValue())).toList());
+ *     if (type == MeterType.COUNTER) {
+ *         FunctionCounter.builder(name, value, v -> v.get().doubleValue())
+ *             .description(description).tags(micrometerTags).register(registry);
+ *     } else {
+ *         Gauge.builder(name, value, v -> v.get().doubleValue())
+ *             .description(description).tags(micrometerTags).register(registry);
+ *     }
+ * });
+ * }</pre>
+ * <p>
+ * Работает с любым {@link ItemPool}; количество ожидающих запросов доступно только для {@link BlockingItemPool}.
+ * Времена - в секундах (базовая единица Micrometer/Prometheus). Все метрики одного сбора читаются из одного
+ * снимка статистики, а перцентили относятся к интервалу с предыдущего сбора (см. {@link PoolStatisticsSampler}).
+ */
+public class PoolMetricsBinder {
+
+    /**
+     * Тип метрики: мгновенное значение или монотонно растущий счетчик
+     */
+    public enum MeterType {
+        GAUGE,
+        COUNTER
+    }
+
+    /**
+     * Регистрация одной метрики в конкретной системе мониторинга.
+     */
+    @FunctionalInterface
+    public interface MeterRegistrar {
+        void register(MeterType type, String name, String description, Map<String, String> tags, Supplier<Number> value);
+    }
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private final String poolName;
+    private final ItemPool<?> pool;
+
+    public PoolMetricsBinder(String poolName, ItemPool<?> pool) {
+        this.poolName = poolName;
+        this.pool = pool;
+    }
+
+    public void bindTo(MeterRegistrar registrar) {
+        Map<String, String> tags = Map.of("pool", poolName);
+
+        registrar.register(MeterType.GAUGE, "objectpool.objects", "Все объекты пула (свободные и выданные)",
+            tags, () -> statistics().getTotalObjects());
+        registrar.register(MeterType.GAUGE, "objectpool.objects.idle", "Свободные объекты",
+            tags, () -> statistics().getAvailableObjects());
+        registrar.register(MeterType.GAUGE, "objectpool.objects.in_use", "Выданные клиентам объекты",
+            tags, () -> statistics().getInUseObjects());
+        if (pool instanceof BlockingItemPool<?> blockingPool) {
+            registrar.register(MeterType.GAUGE, "objectpool.pending", "Запросы, ожидающие освобождения объекта",
+                tags, blockingPool::getWaitingCount);
+            registrar.register(MeterType.GAUGE, "objectpool.objects.max", "Максимальный размер пула",
+                tags, blockingPool::getMaxSize);
+        }
+
+        registrar.register(MeterType.COUNTER, "objectpool.acquires", "Запросы объектов",
+            tags, () -> statistics().getTotalAcquires());
+        registrar.register(MeterType.COUNTER, "objectpool.releases", "Возвраты объектов",
+            tags, () -> statistics().getTotalReleases());
+        registrar.register(MeterType.COUNTER, "objectpool.timeouts", "Тайм-ауты acquire",
+            tags, () -> statistics().getTimeoutCount());
+        registrar.register(MeterType.COUNTER, "objectpool.rejections", "Запросы, отклоненные из-за переполненной очереди ожидающих",
+            tags, () -> statistics().getRejectedCount());
+
+        bindPercentiles(registrar, "objectpool.acquire.wait", "Ожидание в acquire", tags, Latency.ACQUIRE_WAIT);
+        bindPercentiles(registrar, "objectpool.queue", "Время в очереди ожидающих", tags, Latency.QUEUE_TIME);
+        bindPercentiles(registrar, "objectpool.hold", "Удержание объекта клиентом", tags, Latency.HOLD_TIME);
+        bindPercentiles(registrar, "objectpool.create", "Создание объекта фабрикой", tags, Latency.CREATE_TIME);
+    }
+
+    private void bindPercentiles(MeterRegistrar registrar, String name, String description,
+                                 Map<String, String> tags, Latency latency) {
+        bindQuantile(registrar, name, description, latency, "0.5", LatencySnapshot::getP50Nanos);
+        bindQuantile(registrar, name, description, latency, "0.99", LatencySnapshot::getP99Nanos);
+        bindQuantile(registrar, name, description, latency, "0.999", LatencySnapshot::getP999Nanos);
+        registrar.register(MeterType.GAUGE, name + ".max", description + " (максимум), секунды", tags,
+            () -> latency.of(statistics()).getMaxNanos() / NANOS_PER_SECOND);
+    }
+
+    private void bindQuantile(MeterRegistrar registrar, String name, String description, Latency latency,
+                              String quantile, ToLongFunction<LatencySnapshot> percentile) {
+        registrar.register(MeterType.GAUGE, name, description + ", секунды",
+            Map.of("pool", poolName, "quantile", quantile),
+            () -> percentile.applyAsLong(latency.of(statistics())) / NANOS_PER_SECOND);
+    }
+
+    private PoolStatistics statistics() {
+        return PoolStatisticsSampler.sample(pool);
+    }
+
+    /**
+     * Гистограмма задержек из статистики пула.
+     */
+    private enum Latency {
+        ACQUIRE_WAIT,
+        QUEUE_TIME,
+        HOLD_TIME,
+        CREATE_TIME;
+
+        private LatencySnapshot of(PoolStatistics statistics) {
+            return switch (this) {
+                case ACQUIRE_WAIT -> statistics.getAcquireWait();
+                case QUEUE_TIME -> statistics.getQueueTime();
+                case HOLD_TIME -> statistics.getHoldTime();
+                case CREATE_TIME -> statistics.getCreateTime();
+            };
+        }
+    }
+}
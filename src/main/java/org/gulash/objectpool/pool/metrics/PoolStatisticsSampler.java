@@ -0,0 +1,75 @@
+package org.gulash.objectpool.pool.metrics;
+
+import org.gulash.objectpool.pool.ItemPool;
+import org.gulash.objectpool.pool.util.PoolStatistics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Один снимок статистики пула на один сбор метрик.
+ * <p>
+ * Система мониторинга читает метрики по одной, и без сэмплера каждая метрика строила бы свой снимок
+ * (с копированием всех гистограмм) - около двадцати снимков за сбор. Сэмплер отдает метрики, запрошенные
+ * в пределах {@link #SCRAPE_WINDOW_NANOS}, из одного снимка, а следующий снимок берет через
+ * {@link ItemPool#getStatisticsAndReset()}: перцентили относятся к интервалу между сборами,
+ * а не ко всему времени жизни пула.
+ * <p>
+ * Сэмплер общий для всех потребителей пула (JMX и {@link PoolMetricsBinder}), иначе каждый из них
+ * обнулял бы гистограммы другого.
+ */
+final class PoolStatisticsSampler {
+
+    /**
+     * Метрики, запрошенные в пределах этого времени, относятся к одному сбору
+     */
+    private static final long SCRAPE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final Map<ItemPool<?>, PoolStatisticsSampler> SAMPLERS =
+        Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Снимок вместе со временем его получения - одной volatile-ссылкой, чтобы их нельзя было прочитать вразнобой
+     */
+    private record Sample(PoolStatistics statistics, long takenAt) {
+    }
+
+    // Ссылки на пул нет: значение WeakHashMap не должно удерживать свой ключ
+    private final ReentrantLock lock;
+    private volatile Sample sample;
+
+    private PoolStatisticsSampler() {
+        this.lock = new ReentrantLock();
+    }
+
+    /**
+     * Статистика пула для текущего сбора метрик.
+     */
+    static PoolStatistics sample(ItemPool<?> pool) {
+        return SAMPLERS.computeIfAbsent(pool, p -> new PoolStatisticsSampler()).get(pool);
+    }
+
+    private PoolStatistics get(ItemPool<?> pool) {
+        Sample current = sample;
+        if (current != null && System.nanoTime() - current.takenAt() < SCRAPE_WINDOW_NANOS) {
+            return current.statistics();
+        }
+
+        lock.lock();
+        try {
+            // Пока ждали блокировку, снимок этого сбора мог взять другой поток
+            current = sample;
+            long now = System.nanoTime();
+            if (current == null || now - current.takenAt() >= SCRAPE_WINDOW_NANOS) {
+                current = new Sample(pool.getStatisticsAndReset(), now);
+                sample = current;
+            }
+            return current.statistics();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.gulash.objectpool.pool.util;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free гистограмма задержек в наносекундах (в духе HdrHistogram).
+ * <p>
+ * Значения раскладываются по лог-линейным корзинам: каждая степень двойки делится на
+ * {@value #SUB_BUCKETS} равных частей, поэтому относительная погрешность перцентилей не превышает ~6%
+ * при любом масштабе - от десятков наносекунд до минут. Каждая корзина - {@link LongAdder},
+ * поэтому запись из многих потоков не создает точки конкуренции.
+ * <p>
+ * {@link #snapshotAndReset()} забирает накопленные значения и обнуляет гистограмму - удобно,
+ * когда метрики собираются раз в несколько секунд и нужны перцентили именно за этот интервал.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Количество бит для деления каждой степени двойки на равные части
+     */
+    private static final int SUB_BUCKET_BITS = 4;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Старший учитываемый разряд: значения от 2^40 нс (~18 минут) попадают в последнюю корзину
+     */
+    private static final int MAX_EXPONENT = 40;
+
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final LongAdder[] buckets;
+    private final LongAccumulator max;
+
+    public LatencyHistogram() {
+        this.buckets = new LongAdder[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new LongAdder();
+        }
+        this.max = new LongAccumulator(Long::max, 0);
+    }
+
+    /**
+     * Записать одно измерение.
+     *
+     * @param nanos длительность в наносекундах (отрицательные значения считаются нулем)
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets[bucketIndex(value)].increment();
+        max.accumulate(value);
+    }
+
+    /**
+     * Снимок накопленных значений без сброса.
+     */
+    public LatencySnapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return toSnapshot(counts, max.get());
+    }
+
+    /**
+     * Снимок накопленных значений с обнулением гистограммы.
+     * Измерения, записанные одновременно со снятием снимка, попадут либо в этот снимок, либо в следующий.
+     */
+    public LatencySnapshot snapshotAndReset() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets[i].sumThenReset();
+        }
+        return toSnapshot(counts, max.getThenReset());
+    }
+
+    private static LatencySnapshot toSnapshot(long[] counts, long max) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return LatencySnapshot.EMPTY;
+        }
+        return new LatencySnapshot(
+            total,
+            percentile(counts, total, 0.50, max),
+            percentile(counts, total, 0.90, max),
+            percentile(counts, total, 0.99, max),
+            percentile(counts, total, 0.999, max),
+            max
+        );
+    }
+
+    private static long percentile(long[] counts, long total, double quantile, long max) {
+        long rank = Math.max(1, (long) Math.ceil(total * quantile));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // Верхняя граница корзины, но не больше реально наблюдавшегося максимума
+                return Math.min(bucketUpperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        if (index == BUCKET_COUNT - 1) {
+            return Long.MAX_VALUE;
+        }
+        int exponent = (index >>> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+        long subBucket = index & (SUB_BUCKETS - 1);
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + (subBucket + 1) * width - 1;
+    }
+}
@@ -0,0 +1,54 @@
+package org.gulash.objectpool.pool.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Снимок распределения задержек: количество измерений, перцентили и максимум (в наносекундах).
+ */
+public class LatencySnapshot {
+
+    /**
+     * Пустой снимок - измерений не было
+     */
+    public static final LatencySnapshot EMPTY = new LatencySnapshot(0, 0, 0, 0, 0, 0);
+
+    private final long count;
+    private final long p50Nanos;
+    private final long p90Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+    private final long maxNanos;
+
+    public LatencySnapshot(long count, long p50Nanos, long p90Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+        this.count = count;
+        this.p50Nanos = p50Nanos;
+        this.p90Nanos = p90Nanos;
+        this.p99Nanos = p99Nanos;
+        this.p999Nanos = p999Nanos;
+        this.maxNanos = maxNanos;
+    }
+
+    // Getters
+    public long getCount() { return count; }
+    public long getP50Nanos() { return p50Nanos; }
+    public long getP90Nanos() { return p90Nanos; }
+    public long getP99Nanos() { return p99Nanos; }
+    public long getP999Nanos() { return p999Nanos; }
+    public long getMaxNanos() { return maxNanos; }
+
+    @Override
+    public String toString() {
+        return String.format("{n=%d, p50=%s, p90=%s, p99=%s, p999=%s, max=%s}",
+            count, format(p50Nanos), format(p90Nanos), format(p99Nanos), format(p999Nanos), format(maxNanos));
+    }
+
+    private static String format(long nanos) {
+        if (nanos < TimeUnit.MICROSECONDS.toNanos(1)) {
+            return nanos + "ns";
+        }
+        if (nanos < TimeUnit.MILLISECONDS.toNanos(1)) {
+            return String.format("%.1fus", nanos / 1_000.0);
+        }
+        return String.format("%.1fms", nanos / 1_000_000.0);
+    }
+}
@@ -2,6 +2,14 @@ package org.gulash.objectpool.pool.util;
 
 /**
  * Статистика использования пула объектов.
+ * <p>
+ * Помимо счетчиков содержит распределения задержек (перцентили и максимум):
+ * ожидания в acquire, удержания объекта клиентом, создания и валидации объекта.
+ * Пулы, которые не измеряют задержки, возвращают пустые снимки {@link LatencySnapshot#EMPTY}.
+ * <p>
+ * Признаки насыщения пула: запросы, ожидающие освобождения объекта в момент снимка, распределение
+ * времени в очереди ожидания (только для запросов, которым пришлось ждать) и количество запросов,
+ * отклоненных без ожидания из-за переполненной очереди.
  */
 public class PoolStatistics {
     private final int totalObjects;
@@ -11,10 +19,36 @@ public class PoolStatistics {
     private final long totalReleases;
     private final long timeoutCount;
     private final long averageWaitTimeMs;
+    private final LatencySnapshot acquireWait;
+    private final LatencySnapshot holdTime;
+    private final LatencySnapshot createTime;
+    private final LatencySnapshot validateTime;
+    private final int pendingWaiters;
+    private final long rejectedCount;
+    private final LatencySnapshot queueTime;
 
     public PoolStatistics(int totalObjects, int availableObjects, int inUseObjects,
                           long totalAcquires, long totalReleases, long timeoutCount,
                           long averageWaitTimeMs) {
+        this(totalObjects, availableObjects, inUseObjects, totalAcquires, totalReleases, timeoutCount,
+            averageWaitTimeMs, LatencySnapshot.EMPTY, LatencySnapshot.EMPTY, LatencySnapshot.EMPTY, LatencySnapshot.EMPTY);
+    }
+
+    public PoolStatistics(int totalObjects, int availableObjects, int inUseObjects,
+                          long totalAcquires, long totalReleases, long timeoutCount,
+                          long averageWaitTimeMs,
+                          LatencySnapshot acquireWait, LatencySnapshot holdTime,
+                          LatencySnapshot createTime, LatencySnapshot validateTime) {
+        this(totalObjects, availableObjects, inUseObjects, totalAcquires, totalReleases, timeoutCount,
+            averageWaitTimeMs, acquireWait, holdTime, createTime, validateTime, 0, 0, LatencySnapshot.EMPTY);
+    }
+
+    public PoolStatistics(int totalObjects, int availableObjects, int inUseObjects,
+                          long totalAcquires, long totalReleases, long timeoutCount,
+                          long averageWaitTimeMs,
+                          LatencySnapshot acquireWait, LatencySnapshot holdTime,
+                          LatencySnapshot createTime, LatencySnapshot validateTime,
+                          int pendingWaiters, long rejectedCount, LatencySnapshot queueTime) {
         this.totalObjects = totalObjects;
         this.availableObjects = availableObjects;
         this.inUseObjects = inUseObjects;
@@ -22,6 +56,13 @@ public class PoolStatistics {
         this.totalReleases = totalReleases;
         this.timeoutCount = timeoutCount;
         this.averageWaitTimeMs = averageWaitTimeMs;
+        this.acquireWait = acquireWait;
+        this.holdTime = holdTime;
+        this.createTime = createTime;
+        this.validateTime = validateTime;
+        this.pendingWaiters = pendingWaiters;
+        this.rejectedCount = rejectedCount;
+        this.queueTime = queueTime;
     }
 
     // Getters
@@ -32,12 +73,30 @@ public class PoolStatistics {
     public long getTotalReleases() { return totalReleases; }
     public long getTimeoutCount() { return timeoutCount; }
     public long getAverageWaitTimeMs() { return averageWaitTimeMs; }
+    public LatencySnapshot getAcquireWait() { return acquireWait; }
+    public LatencySnapshot getHoldTime() { return holdTime; }
+    public LatencySnapshot getCreateTime() { return createTime; }
+    public LatencySnapshot getValidateTime() { return validateTime; }
+    public int getPendingWaiters() { return pendingWaiters; }
+    public long getRejectedCount() { return rejectedCount; }
+    public LatencySnapshot getQueueTime() { return queueTime; }
 
     @Override
     public String toString() {
-        return String.format(
-            "PoolStatistics{total=%d, available=%d, inUse=%d, acquires=%d, releases=%d, timeouts=%d, avgWaitMs=%d}",
-            totalObjects, availableObjects, inUseObjects, totalAcquires, totalReleases, timeoutCount, averageWaitTimeMs
+        String summary = String.format(
+            "PoolStatistics{total=%d, available=%d, inUse=%d, acquires=%d, releases=%d, timeouts=%d, avgWaitMs=%d, "
+                + "pending=%d, rejected=%d}",
+            totalObjects, availableObjects, inUseObjects, totalAcquires, totalReleases, timeoutCount, averageWaitTimeMs,
+            pendingWaiters, rejectedCount
         );
+        if (acquireWait.getCount() == 0 && holdTime.getCount() == 0) {
+            return summary;
+        }
+        return summary
+            + "\n  acquireWait=" + acquireWait
+            + "\n  holdTime=" + holdTime
+            + "\n  createTime=" + createTime
+            + "\n  validateTime=" + validateTime
+            + (queueTime.getCount() > 0 ? "\n  queueTime=" + queueTime : "");
     }
 }
@@ -1,5 +1,31 @@
 package org.gulash.proxy;
 
+import org.gulash.proxy.cache.CacheEntry;
+import org.gulash.proxy.cache.CacheStats;
+import org.gulash.proxy.cache.OffHeapCache;
+import org.gulash.proxy.cache.SingleFlight;
+import org.gulash.proxy.cache.SqlClassifier;
+import org.gulash.proxy.cache.TableDependencyIndex;
+import org.gulash.proxy.cache.WTinyLfuCache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 // ============================================
 // 1. Базовый интерфейс для объекта и прокси
 // ============================================
@@ -263,18 +289,119 @@ class LoggingDatabaseProxy implements DatabaseService {
  *
  * Use case: когда одни и те же запросы выполняются многократно,
  * а данные меняются редко.
+ *
+ * Результаты хранятся в потокобезопасном кеше ограниченного размера {@link WTinyLfuCache}:
+ * прокси можно использовать из многих потоков, а редкие запросы не вытесняют популярные.
+ * Одновременные промахи по одному запросу объединяются ({@link SingleFlight}): в БД идет один запрос,
+ * остальные потоки ждут его результата.
+ *
+ * Чтобы задержка популярных запросов не "подпрыгивала" на границе TTL, есть два режима (см. {@link Builder}):
+ * - refresh-ahead: запись, прожившая заданную долю TTL (например, 80%), перезагружается в фоне,
+ *   а клиенты продолжают получать еще свежее значение
+ * - stale-while-revalidate: истекшая запись еще какое-то время отдается клиентам,
+ *   пока одна фоновая загрузка получает новое значение
+ *
+ * Кешируются только чтения ({@link SqlClassifier}). Запись выполняется напрямую и удаляет из кеша
+ * закешированные чтения затронутых таблиц ({@link TableDependencyIndex}), поэтому TTL можно делать длинным:
+ * он ограничивает только устаревание из-за изменений в обход прокси.
+ *
+ * Для больших результатов можно включить второй уровень вне кучи ({@link Builder#setOffHeapTier}):
+ * записи, вытесненные из кеша в куче, сериализуются в {@link OffHeapCache}, а при обращении
+ * копируются обратно в кеш в куче. Так можно кешировать гигабайты, не увеличивая паузы GC.
  */
 class CachingDatabaseProxy implements DatabaseService {
+
+    /**
+     * Фоновые перезагрузки выполняются в виртуальных потоках: они почти все время ждут БД
+     */
+    private static final ExecutorService REFRESH_EXECUTOR =
+        Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("cache-refresh-", 0).factory());
+
+    /**
+     * Сколько разборов запросов помнить. Разбор - это регулярные выражения на каждый вызов,
+     * а запись весит сотни байт, поэтому держим с запасом больше, чем записей в кеше
+     */
+    private static final int CLASSIFICATION_CACHE_SIZE = 10_000;
+
     private final DatabaseService realService;
-    private final java.util.Map<String, String> cache = new java.util.HashMap<>();
-    private final java.util.Map<String, Long> cacheTimestamps = new java.util.HashMap<>();
-    private final long cacheTTL; // Time To Live в миллисекундах
+    private final WTinyLfuCache<String, String> cache;
+
+    /**
+     * Второй уровень вне кучи (null - выключен)
+     */
+    private final OffHeapCache<String> secondLevel;
+    private final SingleFlight<String, String> loads;
+    private final TableDependencyIndex<String> dependencies;
+    private final long cacheTTL; // Time To Live в наносекундах
+    private final boolean verbose;
+
+    /**
+     * Возраст записи, после которого она перезагружается в фоне (0 - refresh-ahead выключен)
+     */
+    private final long refreshAfter;
+
+    /**
+     * Сколько после истечения TTL запись еще можно отдавать, пока идет фоновая загрузка (0 - выключено)
+     */
+    private final long maxStale;
+
+    /**
+     * Запросы, для которых сейчас идет фоновая перезагрузка
+     */
+    private final Set<String> refreshing;
+
+    /**
+     * Разобранные запросы: тип и таблицы нужны на каждом обращении (в том числе при попадании в кеш)
+     * и при каждом вытеснении, а сам запрос не меняется
+     */
+    private final WTinyLfuCache<String, SqlClassifier.Statement> statements;
+
+    private final AtomicInteger backgroundRefreshes = new AtomicInteger();
+    private final AtomicInteger staleResponses = new AtomicInteger();
+    private final AtomicInteger invalidatedQueries = new AtomicInteger();
 
     public CachingDatabaseProxy(DatabaseService realService, long cacheTTLSeconds) {
-        this.realService = realService;
-        this.cacheTTL = cacheTTLSeconds * 1000;
-        System.out.println("Кеширующий прокси создан (TTL: " +
-            cacheTTLSeconds + "s)");
+        this(realService, cacheTTLSeconds, 10_000, true);
+    }
+
+    /**
+     * @param maxEntries максимальное количество закешированных результатов
+     * @param verbose    выводить ли в консоль каждое попадание и промах
+     */
+    public CachingDatabaseProxy(DatabaseService realService, long cacheTTLSeconds, long maxEntries, boolean verbose) {
+        this(new Builder(realService, Duration.ofSeconds(cacheTTLSeconds))
+            .setMaxEntries(maxEntries)
+            .setVerbose(verbose));
+    }
+
+    private CachingDatabaseProxy(Builder builder) {
+        this.realService = builder.realService;
+        this.cacheTTL = builder.ttl.toNanos();
+        this.verbose = builder.verbose;
+        this.refreshAfter = (long) (cacheTTL * builder.refreshAheadFraction);
+        this.maxStale = builder.maxStale.toNanos();
+        this.dependencies = new TableDependencyIndex<>();
+        this.cache = new WTinyLfuCache.Builder<String, String>()
+            .setMaximumSize(builder.maxEntries)
+            .setEvictionListener(this::demote)
+            .build();
+        this.secondLevel = builder.offHeapCapacityBytes == 0 ? null
+            : new OffHeapCache.Builder<>(OffHeapCache.Codec.UTF8)
+                .setCapacityBytes(builder.offHeapCapacityBytes)
+                .setMemoryMappedFile(builder.offHeapFile)
+                .setRemovalListener(this::forget)
+                .build();
+        this.loads = new SingleFlight<>();
+        this.refreshing = ConcurrentHashMap.newKeySet();
+        this.statements = new WTinyLfuCache.Builder<String, SqlClassifier.Statement>()
+            .setMaximumSize(CLASSIFICATION_CACHE_SIZE)
+            .build();
+        System.out.println("Кеширующий прокси создан (TTL: " + builder.ttl.toMillis() + "ms, до "
+            + builder.maxEntries + " записей"
+            + (refreshAfter > 0 ? ", refresh-ahead с " + Math.round(builder.refreshAheadFraction * 100) + "% TTL" : "")
+            + (maxStale > 0 ? ", stale-while-revalidate " + builder.maxStale.toMillis() + "ms" : "")
+            + (secondLevel != null ? ", вне кучи " + (secondLevel.getCapacityBytes() >> 20) + " MB"
+                + (builder.offHeapFile != null ? " в " + builder.offHeapFile : "") : "") + ")");
     }
 
     @Override
@@ -284,43 +411,385 @@ class CachingDatabaseProxy implements DatabaseService {
 
     @Override
     public String executeQuery(String query) {
+        SqlClassifier.Statement statement = classify(query);
+        if (statement.isWrite()) {
+            return executeWrite(query, statement.tables());
+        }
+        if (!statement.isRead()) {
+            log("Запрос не кешируется: " + query);
+            return realService.executeQuery(query);
+        }
+
+        if (secondLevel != null && cache.peek(query) == null) {
+            promote(query, statement.tables());
+        }
+
         // Проверяем, есть ли результат в кеше и не устарел ли он
-        if (cache.containsKey(query)) {
-            long cacheAge = System.currentTimeMillis() - cacheTimestamps.get(query);
-
-            if (cacheAge < cacheTTL) {
-                System.out.println("⚡ CACHE HIT для: " + query +
-                    " (возраст: " + cacheAge + "ms)");
-                return cache.get(query);
-            } else {
-                System.out.println("Кеш устарел для: " + query);
-                cache.remove(query);
-                cacheTimestamps.remove(query);
+        CacheEntry<String> entry = cache.getIfPresent(query, cacheTTL);
+        if (entry != null) {
+            log("⚡ CACHE HIT для: " + query +
+                " (возраст: " + TimeUnit.NANOSECONDS.toMillis(entry.ageNanos()) + "ms)");
+            // Refresh-ahead: запись скоро истечет - обновляем ее заранее, клиент не ждет
+            if (refreshAfter > 0 && entry.ageNanos() >= refreshAfter) {
+                refreshInBackground(query, statement.tables());
+            }
+            return entry.value();
+        }
+
+        CacheEntry<String> expired = cache.peek(query);
+        if (expired != null) {
+            // Stale-while-revalidate: отдаем устаревшее значение, пока одна фоновая загрузка получает новое
+            if (maxStale > 0 && expired.ageNanos() < cacheTTL + maxStale) {
+                log("♻ STALE для: " + query + " - обновляем в фоне");
+                staleResponses.incrementAndGet();
+                refreshInBackground(query, statement.tables());
+                return expired.value();
+            }
+            log("Кеш устарел для: " + query);
+            // Удаляем только ту запись, которую видели: другой поток мог уже записать свежий результат
+            cache.invalidate(query, expired);
+        }
+
+        // Одновременные промахи по одному запросу ждут одной загрузки. Версия таблиц входит в ключ:
+        // запрос после записи не присоединится к загрузке, начатой до нее, и не получит старые данные
+        long version = dependencies.version(statement.tables());
+        return loads.execute(version + "@" + query, () -> load(query, statement.tables(), version));
+    }
+
+    private SqlClassifier.Statement classify(String query) {
+        CacheEntry<SqlClassifier.Statement> classified = statements.getIfPresent(query);
+        if (classified != null) {
+            return classified.value();
+        }
+        SqlClassifier.Statement statement = SqlClassifier.classify(query);
+        statements.put(query, statement);
+        return statement;
+    }
+
+    /**
+     * Запись выполняется без кеша, после нее удаляются чтения затронутых таблиц.
+     */
+    private String executeWrite(String query, Set<String> tables) {
+        String result = realService.executeQuery(query);
+
+        if (tables.isEmpty()) {
+            // Не удалось определить таблицы (например, вызов процедуры) - сбрасываем все
+            dependencies.invalidateAll();
+            invalidatedQueries.addAndGet(cache.size());
+            cache.invalidateAll();
+            if (secondLevel != null) {
+                secondLevel.invalidateAll();
             }
+            log("✎ WRITE в неизвестные таблицы - кеш очищен");
+            return result;
+        }
+
+        List<String> invalidated = dependencies.invalidate(tables);
+        for (String cachedQuery : invalidated) {
+            cache.invalidate(cachedQuery);
+            if (secondLevel != null) {
+                secondLevel.invalidate(cachedQuery);
+            }
+        }
+        invalidatedQueries.addAndGet(invalidated.size());
+        log("✎ WRITE в " + tables + " - удалено из кеша запросов: " + invalidated.size());
+        return result;
+    }
+
+    /**
+     * Загрузка из БД (выполняет только ведущий поток single-flight).
+     */
+    private String load(String query, Set<String> tables, long version) {
+        // Пока мы ждали своей очереди, предыдущая загрузка могла уже положить свежий результат
+        CacheEntry<String> loaded = cache.peek(query);
+        if (loaded != null && loaded.ageNanos() < cacheTTL) {
+            return loaded.value();
         }
+        return reload(query, tables, version);
+    }
 
-        System.out.println("CACHE MISS - выполняем реальный запрос");
+    /**
+     * @param version версия таблиц до запроса к БД
+     */
+    private String reload(String query, Set<String> tables, long version) {
+        log("CACHE MISS - выполняем реальный запрос");
         String result = realService.executeQuery(query);
 
-        // Сохраняем в кеш
+        // Сохраняем в кеш до завершения загрузки: следующие запросы уже найдут результат в кеше
         cache.put(query, result);
-        cacheTimestamps.put(query, System.currentTimeMillis());
+        dependencies.register(query, tables);
+        if (dependencies.version(tables) != version) {
+            // Пока шел запрос, в эти таблицы писали - результат мог устареть
+            cache.invalidate(query);
+        }
 
         return result;
     }
 
+    /**
+     * Запись из второго уровня копируется в кеш в куче (с исходным моментом загрузки - TTL не продлевается).
+     * Копия вне кучи остается: если кеш в куче снова вытеснит эту версию, ее не придется записывать заново.
+     */
+    private void promote(String query, Set<String> tables) {
+        CacheEntry<String> promoted = secondLevel.get(query);
+        if (promoted == null) {
+            return;
+        }
+        log("⬆ L2 HIT для: " + query + " - копируем в кеш в куче");
+        cache.put(query, promoted);
+        // Пока запись переносили, в ее таблицы могли писать: запись уже убрала запрос из индекса
+        if (!dependencies.isRegistered(query, tables)) {
+            cache.invalidate(query);
+        }
+    }
+
+    /**
+     * Кеш в куче вытеснил запрос: переносим его во второй уровень, если он есть, иначе забываем.
+     */
+    private void demote(String query, CacheEntry<String> entry) {
+        // Истекшую запись (с учетом stale-while-revalidate) переносить незачем
+        if (secondLevel == null || entry.ageNanos() >= cacheTTL + maxStale) {
+            forget(query);
+            return;
+        }
+        if (secondLevel.contains(query, entry)) {
+            return; // эта версия уже лежит вне кучи
+        }
+        if (!secondLevel.put(query, entry)) {
+            forget(query);
+            return;
+        }
+        if (!dependencies.isRegistered(query, classify(query).tables())) {
+            secondLevel.invalidate(query);
+        }
+    }
+
+    /**
+     * Запрос вытеснен из кеша - убираем его из индекса таблиц.
+     */
+    private void forget(String query) {
+        Set<String> tables = classify(query).tables();
+        dependencies.unregister(query, tables);
+        // Запрос могли снова загрузить между вытеснением и этим вызовом - тогда возвращаем его в индекс
+        if (cache.peek(query) != null || (secondLevel != null && secondLevel.contains(query))) {
+            dependencies.register(query, tables);
+        }
+    }
+
+    /**
+     * Запустить фоновую перезагрузку запроса, если она еще не идет. Промахи по тому же запросу,
+     * случившиеся во время перезагрузки, дождутся ее через single-flight, а не пойдут в БД сами.
+     */
+    private void refreshInBackground(String query, Set<String> tables) {
+        if (!refreshing.add(query)) {
+            return;
+        }
+        backgroundRefreshes.incrementAndGet();
+        REFRESH_EXECUTOR.execute(() -> {
+            try {
+                long version = dependencies.version(tables);
+                loads.execute(version + "@" + query, () -> reload(query, tables, version));
+            } catch (RuntimeException e) {
+                // Старое значение остается в кеше, следующая попытка - при следующем обращении
+                System.err.println("Ошибка фонового обновления кеша для " + query + ": " + e.getMessage());
+            } finally {
+                refreshing.remove(query);
+            }
+        });
+    }
+
     @Override
     public void disconnect() {
         System.out.println("Статистика кеша: " +
-            cache.size() + " записей");
+            cache.size() + " записей, " + cache.getStats() +
+            ", объединено запросов: " + loads.getCoalescedCount() +
+            ", фоновых обновлений: " + backgroundRefreshes.get() +
+            ", устаревших ответов: " + staleResponses.get() +
+            ", инвалидировано записью: " + invalidatedQueries.get());
+        if (secondLevel != null) {
+            System.out.println("Вне кучи: " + secondLevel.size() + " записей, "
+                + (secondLevel.usedBytes() >> 20) + " из " + (secondLevel.getCapacityBytes() >> 20) + " MB, "
+                + secondLevel.getStats());
+            // Память вне кучи освобождаем сразу, а не когда до буферов доберется GC
+            secondLevel.close();
+        }
         realService.disconnect();
     }
 
     public void clearCache() {
-        cache.clear();
-        cacheTimestamps.clear();
+        dependencies.invalidateAll();
+        cache.invalidateAll();
+        if (secondLevel != null) {
+            secondLevel.invalidateAll();
+        }
         System.out.println("Кеш очищен");
     }
+
+    public CacheStats getStats() {
+        return cache.getStats();
+    }
+
+    /**
+     * Статистика второго уровня (null, если он выключен).
+     */
+    public CacheStats getSecondLevelStats() {
+        return secondLevel == null ? null : secondLevel.getStats();
+    }
+
+    /**
+     * Сколько промахов не пошли в БД, а дождались загрузки, начатой другим потоком.
+     */
+    public long getCoalescedRequests() {
+        return loads.getCoalescedCount();
+    }
+
+    /**
+     * Сколько фоновых перезагрузок запущено (refresh-ahead и stale-while-revalidate).
+     */
+    public int getBackgroundRefreshes() {
+        return backgroundRefreshes.get();
+    }
+
+    /**
+     * Сколько раз клиент получил устаревшее значение, пока шла фоновая загрузка.
+     */
+    public int getStaleResponses() {
+        return staleResponses.get();
+    }
+
+    /**
+     * Сколько закешированных чтений удалено из-за записи в их таблицы.
+     */
+    public int getInvalidatedQueries() {
+        return invalidatedQueries.get();
+    }
+
+    private void log(String message) {
+        if (verbose) {
+            System.out.println(message);
+        }
+    }
+
+    /**
+     * Настройки кеширующего прокси.
+     */
+    static class Builder {
+        private final DatabaseService realService;
+        private final Duration ttl;
+        private long maxEntries = 10_000;
+        private boolean verbose = true;
+        private double refreshAheadFraction = 0;
+        private Duration maxStale = Duration.ZERO;
+        private long offHeapCapacityBytes;
+        private Path offHeapFile;
+
+        Builder(DatabaseService realService, Duration ttl) {
+            this.realService = realService;
+            this.ttl = ttl;
+        }
+
+        Builder setMaxEntries(long maxEntries) {
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        Builder setVerbose(boolean verbose) {
+            this.verbose = verbose;
+            return this;
+        }
+
+        /**
+         * Перезагружать запись в фоне, когда ее возраст достигает fraction * TTL (0 - выключено, обычно 0.8).
+         */
+        Builder setRefreshAhead(double fraction) {
+            this.refreshAheadFraction = fraction;
+            return this;
+        }
+
+        /**
+         * Отдавать истекшую запись еще maxStale после TTL, пока одна фоновая загрузка получает новое значение.
+         */
+        Builder setStaleWhileRevalidate(Duration maxStale) {
+            this.maxStale = maxStale;
+            return this;
+        }
+
+        /**
+         * Второй уровень в direct-буферах: вытесненные из кучи результаты хранятся в сериализованном виде.
+         */
+        Builder setOffHeapTier(long capacityBytes) {
+            return setOffHeapTier(capacityBytes, null);
+        }
+
+        /**
+         * Второй уровень в отображенном в память файле (null - в direct-буферах).
+         */
+        Builder setOffHeapTier(long capacityBytes, Path file) {
+            this.offHeapCapacityBytes = capacityBytes;
+            this.offHeapFile = file;
+            return this;
+        }
+
+        CachingDatabaseProxy build() {
+            if (ttl.isNegative() || ttl.isZero() || maxEntries <= 0) {
+                throw new IllegalArgumentException("Invalid cache settings: ttl=" + ttl + ", maxEntries=" + maxEntries);
+            }
+            if (offHeapCapacityBytes < 0) {
+                throw new IllegalArgumentException("Invalid off-heap capacity: " + offHeapCapacityBytes);
+            }
+            if (refreshAheadFraction < 0 || refreshAheadFraction >= 1 || maxStale.isNegative()) {
+                throw new IllegalArgumentException("Invalid refresh settings: refreshAhead=" + refreshAheadFraction
+                    + ", maxStale=" + maxStale);
+            }
+            return new CachingDatabaseProxy(this);
+        }
+    }
+}
+
+/**
+ * "Тихая" имитация БД для многопоточных демонстраций: фиксированная задержка запроса,
+ * без вывода в консоль, со счетчиком реально выполненных запросов.
+ */
+class SimulatedDatabaseService implements DatabaseService {
+    private final long queryLatencyMs;
+    private final int resultSize;
+    private final AtomicInteger executedQueries = new AtomicInteger();
+
+    public SimulatedDatabaseService(long queryLatencyMs) {
+        this(queryLatencyMs, 0);
+    }
+
+    /**
+     * @param resultSize размер результата в символах (результат дополняется до этого размера)
+     */
+    public SimulatedDatabaseService(long queryLatencyMs, int resultSize) {
+        this.queryLatencyMs = queryLatencyMs;
+        this.resultSize = resultSize;
+    }
+
+    @Override
+    public void connect() {
+    }
+
+    @Override
+    public String executeQuery(String query) {
+        executedQueries.incrementAndGet();
+        try {
+            Thread.sleep(queryLatencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        String result = "Результат для: " + query;
+        return result.length() >= resultSize ? result : result + " ".repeat(resultSize - result.length());
+    }
+
+    @Override
+    public void disconnect() {
+    }
+
+    public int getExecutedQueries() {
+        return executedQueries.get();
+    }
 }
 
 // ============================================
@@ -367,6 +836,12 @@ public class ProxyPatternDemo {
         demonstrateLazyProxy();
         demonstrateProtectionProxy();
         demonstrateCachingProxy();
+        demonstrateConcurrentCachingProxy();
+        demonstrateScanResistance();
+        demonstrateRequestCoalescing();
+        demonstrateRefreshModes();
+        demonstrateWriteInvalidation();
+        demonstrateOffHeapTier();
         demonstrateProxyChain();
         demonstrateBestPractices();
     }
@@ -453,6 +928,270 @@ public class ProxyPatternDemo {
         db.disconnect();
     }
 
+    /**
+     * Демонстрация 3.1: Caching Proxy под нагрузкой из многих потоков.
+     * Популярность запросов распределена неравномерно (несколько "горячих" товаров и длинный хвост),
+     * а кеш меньше числа разных запросов - W-TinyLFU удерживает именно горячие.
+     */
+    private static void demonstrateConcurrentCachingProxy() {
+        printSection("CACHING PROXY - Многопоточный доступ");
+
+        SimulatedDatabaseService realDb = new SimulatedDatabaseService(1);
+        CachingDatabaseProxy db = new CachingDatabaseProxy(realDb, 60, 100, false);
+
+        final int threads = 8;
+        final int queriesPerThread = 2_000;
+        System.out.printf("%d потоков по %d запросов к 5 000 товаров, кеш на 100 записей, запрос к БД - 1ms%n",
+            threads, queriesPerThread);
+
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < queriesPerThread; i++) {
+                    // Степенное распределение: товар с меньшим номером запрашивают гораздо чаще
+                    int productId = (int) Math.pow(5_000, ThreadLocalRandom.current().nextDouble());
+                    db.executeQuery("SELECT * FROM products WHERE id = " + productId);
+                }
+            });
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        System.out.printf("Время: %d ms, запросов к БД: %d из %d%n",
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+            realDb.getExecutedQueries(), threads * queriesPerThread);
+        System.out.println(db.getStats());
+    }
+
+    /**
+     * Демонстрация 3.1.1: W-TinyLFU против обычного LRU на трассе с "загрязняющими" сканированиями.
+     * Между запросами к популярным товарам идут пачки одноразовых запросов (постраничный обход журнала):
+     * LRU вытесняет ради них горячие записи, а W-TinyLFU не пускает их дальше маленького окна.
+     */
+    private static void demonstrateScanResistance() {
+        printSection("CACHING PROXY - W-TinyLFU против LRU при сканированиях");
+
+        final int capacity = 100;
+        final int requests = 200_000;
+        final int scanEvery = 1_000;
+        final int scanLength = 300;
+        System.out.printf("%d запросов к 5 000 товаров, каждые %d - сканирование %d новых страниц журнала, кеш на %d записей%n",
+            requests, scanEvery, scanLength, capacity);
+
+        WTinyLfuCache<String, String> tinyLfu = new WTinyLfuCache.Builder<String, String>()
+            .setMaximumSize(capacity)
+            .build();
+        Map<String, String> lru = new LinkedHashMap<>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > capacity;
+            }
+        };
+
+        // Фиксированное зерно: одна и та же трасса для обоих кешей и при каждом запуске
+        Random random = new Random(42);
+        int page = 0;
+        long lruHits = 0;
+        long total = 0;
+        for (int i = 0; i < requests; i++) {
+            List<String> keys = new ArrayList<>();
+            keys.add("SELECT * FROM products WHERE id = " + (int) Math.pow(5_000, random.nextDouble()));
+            if (i % scanEvery == 0) {
+                for (int j = 0; j < scanLength; j++) {
+                    keys.add("SELECT * FROM audit_log WHERE page = " + page++);
+                }
+            }
+            for (String key : keys) {
+                total++;
+                if (tinyLfu.getIfPresent(key) == null) {
+                    tinyLfu.put(key, key);
+                }
+                if (lru.get(key) != null) {
+                    lruHits++;
+                } else {
+                    lru.put(key, key);
+                }
+            }
+        }
+
+        System.out.printf("Обычный LRU: попаданий %.1f%%%n", 100.0 * lruHits / total);
+        System.out.printf("W-TinyLFU:   попаданий %.1f%%%n", 100.0 * tinyLfu.getStats().hitRate());
+    }
+
+    /**
+     * Демонстрация 3.2: Объединение одновременных промахов (защита от thundering herd).
+     * 50 потоков одновременно запрашивают один и тот же отчет, которого нет в кеше.
+     */
+    private static void demonstrateRequestCoalescing() {
+        printSection("CACHING PROXY - Объединение одновременных промахов");
+
+        SimulatedDatabaseService realDb = new SimulatedDatabaseService(200);
+        CachingDatabaseProxy db = new CachingDatabaseProxy(realDb, 60, 100, false);
+
+        final int threads = 50;
+        System.out.printf("%d потоков одновременно запрашивают отчет, запрос к БД - 200ms%n", threads);
+
+        CountDownLatch startSignal = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                startSignal.await();
+                return db.executeQuery("SELECT region, SUM(amount) FROM sales GROUP BY region");
+            });
+        }
+        long start = System.nanoTime();
+        startSignal.countDown();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        System.out.printf("Время: %d ms, запросов к БД: %d, объединено запросов: %d%n",
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+            realDb.getExecutedQueries(), db.getCoalescedRequests());
+        System.out.println(db.getStats());
+    }
+
+    /**
+     * Демонстрация 3.3: Refresh-ahead и stale-while-revalidate.
+     * Популярный запрос читается каждые 20ms, TTL - 300ms, запрос к БД - 100ms.
+     * Без фонового обновления каждое истечение TTL дает медленный запрос (промах),
+     * в режимах refresh-ahead и stale-while-revalidate задержка остается ровной.
+     */
+    private static void demonstrateRefreshModes() {
+        printSection("CACHING PROXY - Refresh-ahead и stale-while-revalidate");
+
+        Duration ttl = Duration.ofMillis(300);
+        runHotKey("Без фонового обновления",
+            new CachingDatabaseProxy.Builder(new SimulatedDatabaseService(100), ttl).setVerbose(false).build());
+        runHotKey("Refresh-ahead (80% TTL)",
+            new CachingDatabaseProxy.Builder(new SimulatedDatabaseService(100), ttl).setVerbose(false)
+                .setRefreshAhead(0.8).build());
+        runHotKey("Stale-while-revalidate (+1s)",
+            new CachingDatabaseProxy.Builder(new SimulatedDatabaseService(100), ttl).setVerbose(false)
+                .setStaleWhileRevalidate(Duration.ofSeconds(1)).build());
+    }
+
+    private static void runHotKey(String mode, CachingDatabaseProxy db) {
+        final String query = "SELECT * FROM products ORDER BY sales DESC LIMIT 10";
+        db.executeQuery(query); // прогрев кеша
+
+        int slowRequests = 0;
+        long maxLatency = 0;
+        for (int i = 0; i < 75; i++) {
+            long start = System.nanoTime();
+            db.executeQuery(query);
+            long latency = System.nanoTime() - start;
+            maxLatency = Math.max(maxLatency, latency);
+            if (latency > TimeUnit.MILLISECONDS.toNanos(50)) {
+                slowRequests++;
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        System.out.printf("%-30s медленных запросов: %d, макс. задержка: %d ms, фоновых обновлений: %d, устаревших ответов: %d%n",
+            mode, slowRequests, TimeUnit.NANOSECONDS.toMillis(maxLatency),
+            db.getBackgroundRefreshes(), db.getStaleResponses());
+    }
+
+    /**
+     * Демонстрация 3.4: Инвалидация по записи.
+     * TTL - час, но после UPDATE/INSERT из кеша удаляются чтения именно затронутых таблиц.
+     */
+    private static void demonstrateWriteInvalidation() {
+        printSection("CACHING PROXY - Инвалидация кеша по записи");
+
+        for (String sql : List.of(
+            "SELECT o.id, c.name FROM orders o JOIN customers c ON o.customer_id = c.id",
+            "INSERT INTO orders (customer_id, amount) VALUES (1, 50)",
+            "UPDATE public.products SET price = price * 1.1 WHERE category = 'books'",
+            "SELECT * FROM accounts WHERE id = 1 FOR UPDATE",
+            "BEGIN")) {
+            SqlClassifier.Statement statement = SqlClassifier.classify(sql);
+            System.out.printf("%-6s %-24s %s%n", statement.kind(), statement.tables(), sql);
+        }
+        System.out.println();
+
+        SimulatedDatabaseService realDb = new SimulatedDatabaseService(10);
+        CachingDatabaseProxy db = new CachingDatabaseProxy(realDb, 3600, 100, true);
+
+        List<String> reads = List.of(
+            "SELECT * FROM products WHERE id = 1",
+            "SELECT COUNT(*) FROM orders",
+            "SELECT o.id, c.name FROM orders o JOIN customers c ON o.customer_id = c.id");
+        reads.forEach(db::executeQuery);
+        reads.forEach(db::executeQuery);
+
+        System.out.println("\n➡️ Запись в orders:");
+        db.executeQuery("INSERT INTO orders (customer_id, amount) VALUES (1, 50)");
+        reads.forEach(db::executeQuery);
+
+        System.out.printf("%nЗапросов к БД: %d (3 чтения, 1 запись и 2 повторных чтения orders), инвалидировано: %d%n",
+            realDb.getExecutedQueries(), db.getInvalidatedQueries());
+        db.disconnect();
+    }
+
+    /**
+     * Демонстрация 3.5: Второй уровень кеша вне кучи.
+     * 2 000 отчетов по 32 KB (около 64 MB), в куче - только 100 самых популярных,
+     * остальное - в direct-буферах или в отображенном в память файле.
+     */
+    private static void demonstrateOffHeapTier() {
+        printSection("CACHING PROXY - Второй уровень вне кучи");
+
+        Path file;
+        try {
+            file = Files.createTempFile("proxy-cache", ".bin");
+        } catch (IOException e) {
+            System.err.println("Не удалось создать файл кеша: " + e.getMessage());
+            return;
+        }
+
+        runLargeResults("Только куча (100 записей)", 0, null);
+        runLargeResults("Куча + direct-буферы 128 MB", 128L << 20, null);
+        runLargeResults("Куча + mmap-файл 128 MB", 128L << 20, file);
+    }
+
+    /**
+     * @param offHeapBytes емкость второго уровня (0 - без него)
+     * @param file         файл второго уровня (null - direct-буферы)
+     */
+    private static void runLargeResults(String mode, long offHeapBytes, Path file) {
+        SimulatedDatabaseService realDb = new SimulatedDatabaseService(0, 32 * 1024);
+        CachingDatabaseProxy.Builder builder = new CachingDatabaseProxy.Builder(realDb, Duration.ofHours(1))
+            .setMaxEntries(100)
+            .setVerbose(false);
+        if (offHeapBytes > 0) {
+            builder.setOffHeapTier(offHeapBytes, file);
+        }
+        CachingDatabaseProxy db = builder.build();
+
+        final int requests = 20_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            // Степенное распределение: отчет с меньшим номером запрашивают гораздо чаще
+            int reportId = (int) Math.pow(2_000, ThreadLocalRandom.current().nextDouble());
+            db.executeQuery("SELECT * FROM reports WHERE id = " + reportId);
+        }
+
+        System.out.printf("%-28s запросов к БД: %d из %d, время: %d ms%n", mode, realDb.getExecutedQueries(), requests,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        db.disconnect();
+        System.out.println();
+    }
+
     /**
      * Демонстрация 4: Цепочка прокси (Best Practice)
      */
@@ -0,0 +1,18 @@
+package org.gulash.proxy.cache;
+
+/**
+ * Запись кэша: значение и момент записи (по System.nanoTime) в одном неизменяемом объекте.
+ * Значение и его возраст всегда читаются согласованно, без второй карты с временными метками.
+ *
+ * @param value      закэшированное значение
+ * @param writeNanos момент записи по System.nanoTime
+ */
+public record CacheEntry<V>(V value, long writeNanos) {
+
+    /**
+     * Возраст записи в наносекундах.
+     */
+    public long ageNanos() {
+        return System.nanoTime() - writeNanos;
+    }
+}
@@ -0,0 +1,25 @@
+package org.gulash.proxy.cache;
+
+/**
+ * Счетчики кэша на момент снимка.
+ *
+ * @param hits      сколько обращений нашли значение в кэше
+ * @param misses    сколько обращений не нашли значения
+ * @param evictions сколько записей вытеснено из-за ограничения размера
+ */
+public record CacheStats(long hits, long misses, long evictions) {
+
+    /**
+     * Доля попаданий от 0 до 1 (0, если к кэшу еще не обращались).
+     */
+    public double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheStats{hits=%d, misses=%d, evictions=%d, hitRate=%.1f%%}",
+            hits, misses, evictions, hitRate() * 100);
+    }
+}
@@ -0,0 +1,106 @@
+package org.gulash.proxy.cache;
+
+/**
+ * Приблизительный счетчик частоты обращений к ключам (Count-Min Sketch с 4-битными счетчиками).
+ * <p>
+ * Для каждого ключа хранится не точное число обращений, а минимум из четырех счетчиков, выбранных
+ * разными хэш-функциями, поэтому память не зависит от количества ключей: 16 счетчиков в одном long.
+ * Счетчики насыщаются на 15, а после 10 * capacity обращений все делятся пополам ("старение"):
+ * ключ, который был популярен давно, постепенно уступает тем, кто популярен сейчас.
+ * <p>
+ * Не потокобезопасен: кэш обращается к нему под своей блокировкой.
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+        0x97cb3127L, 0xab5f2a8dL, 0xc2b2ae35L, 0x27d4eb2fL
+    };
+    private static final long RESET_MASK = 0x7777_7777_7777_7777L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param capacity ожидаемое количество записей в кэше
+     */
+    FrequencySketch(long capacity) {
+        int size = Integer.highestOneBit((int) Math.max(16, Math.min(capacity, 1 << 24)) - 1) << 1;
+        this.table = new long[size];
+        this.tableMask = size - 1;
+        this.sampleSize = (int) Math.min(Integer.MAX_VALUE, 10L * Math.max(capacity, 16));
+    }
+
+    /**
+     * Оценка частоты обращений к ключу (0..15).
+     */
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < SEEDS.length; i++) {
+            frequency = Math.min(frequency, counter(hash, i));
+        }
+        return frequency;
+    }
+
+    /**
+     * Учесть обращение к ключу.
+     */
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            added |= incrementAt(hash, i);
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private int counter(int hash, int i) {
+        int index = indexOf(hash, i);
+        int offset = counterOffset(hash, i);
+        return (int) ((table[index] >>> offset) & 0xF);
+    }
+
+    private boolean incrementAt(int hash, int i) {
+        int index = indexOf(hash, i);
+        int offset = counterOffset(hash, i);
+        long mask = 0xFL << offset;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Старение: все счетчики делятся пополам.
+     */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+
+    /**
+     * Номер 4-битного счетчика внутри long (0..15), умноженный на 4.
+     */
+    private static int counterOffset(int hash, int i) {
+        // Четверть long выбирается номером хэш-функции, счетчик внутри четверти - битами хэша
+        return (i << 4) + (((hash >>> (i << 3)) & 3) << 2);
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,699 @@
+package org.gulash.proxy.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Кэш вне кучи: сериализованные значения хранятся в direct-буферах или в отображенном в память файле.
+ * <p>
+ * ИДЕЯ:
+ * Большие результаты в куче удлиняют паузы GC - сборщику приходится копировать и просматривать их.
+ * Здесь значения лежат в нескольких больших сегментах вне кучи, а в куче остается только компактный
+ * индекс: 64-битный хэш ключа -> адрес записи. Индекс - хэш-таблица с открытой адресацией в одном массиве long,
+ * без объектов на запись (16 байт на слот, около 20-40 байт на запись); сами ключи тоже хранятся вне кучи.
+ * <p>
+ * ХРАНЕНИЕ (log-structured):
+ * - Записи дописываются в конец текущего сегмента: [hash][writeNanos][длина ключа][длина значения][ключ][значение]
+ * - Когда сегмент заполнен, запись переходит в следующий по кругу, а тот очищается целиком:
+ *   вытесняются самые старые записи (FIFO по сегментам), без фрагментации и без освобождения памяти по одной записи
+ * - Перезапись и удаление только меняют индекс; место старой записи освобождается вместе с ее сегментом
+ * <p>
+ * ПОТОКОБЕЗОПАСНОСТЬ:
+ * Запись, удаление и очистка сегментов - под одной блокировкой ({@link ReentrantLock}). Чтение блокировок не берет:
+ * у каждого сегмента есть номер поколения и {@link StampedLock}, который используется как seqlock.
+ * Читатель копирует байты под оптимистичной меткой и отбрасывает результат, если сегмент за это время очищали.
+ * <p>
+ * Емкость direct-буферов ограничена {@code -XX:MaxDirectMemorySize} (по умолчанию - как максимальный размер кучи),
+ * отображенный файл этим ограничением не связан: его страницы вытесняет на диск сама ОС.
+ * <p>
+ * {@link #close()} освобождает память сразу, не дожидаясь GC: direct-буферы и отображение файла
+ * держат память вне кучи, которую сборщик почти не "чувствует" и может освободить очень нескоро.
+ *
+ * <pre>{@code
+ * OffHeapCache<String> cache = new OffHeapCache.Builder<>(OffHeapCache.Codec.UTF8)
+ *     .setCapacityBytes(4L << 30)
+ *     .setMemoryMappedFile(Path.of("/var/cache/app/results.bin"))
+ *     .build();
+ * }</pre>
+ *
+ * @param <V> значение (сериализуется переданным {@link Codec})
+ */
+public class OffHeapCache<V> implements AutoCloseable {
+
+    /**
+     * Сериализация значений в байты и обратно.
+     */
+    public interface Codec<V> {
+
+        Codec<String> UTF8 = new Codec<>() {
+            @Override
+            public byte[] encode(String value) {
+                return value.getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public String decode(byte[] bytes) {
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+
+        byte[] encode(V value);
+
+        V decode(byte[] bytes);
+    }
+
+    /**
+     * Заголовок записи: hash (8) + writeNanos (8) + длина ключа (4) + длина значения (4)
+     */
+    private static final int HEADER_SIZE = 24;
+
+    /**
+     * {@code sun.misc.Unsafe.invokeCleaner} - немедленное освобождение direct-буфера (и снятие отображения файла).
+     * Публичного API для этого в JDK 21 нет; если метод недоступен, память освободит GC.
+     */
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            System.err.println("Немедленное освобождение памяти вне кучи недоступно: " + e.getMessage());
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final Codec<V> codec;
+    private final Segment[] segments;
+    private final int segmentSize;
+    private final Consumer<String> removalListener;
+
+    /**
+     * Хэш ключа -> адрес записи: [номер сегмента - 16 бит][поколение сегмента - 16 бит][смещение - 32 бита].
+     * Меняется только под writeLock; при перестроении публикуется новая таблица
+     */
+    private volatile Index index;
+
+    private final ReentrantLock writeLock;
+    private int currentSegment;
+
+    /**
+     * Читатели, которые сейчас копируют байты из сегментов без блокировок: close() дожидается их,
+     * прежде чем освободить память
+     */
+    private final AtomicInteger activeReaders;
+    private volatile boolean closed;
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private final LongAdder rejected;
+
+    private OffHeapCache(Builder<V> builder) {
+        this.codec = builder.codec;
+        this.segmentSize = builder.segmentSize;
+        this.removalListener = builder.removalListener;
+        int segmentCount = (int) Math.max(2, builder.capacityBytes / segmentSize);
+        this.segments = new Segment[segmentCount];
+        ByteBuffer[] buffers = builder.mappedFile == null
+            ? allocateDirect(segmentCount, segmentSize)
+            : map(builder.mappedFile, segmentCount, segmentSize);
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(buffers[i]);
+        }
+
+        this.index = new Index(Index.MIN_CAPACITY);
+        this.writeLock = new ReentrantLock();
+        this.activeReaders = new AtomicInteger();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+        this.rejected = new LongAdder();
+    }
+
+    private static ByteBuffer[] allocateDirect(int segmentCount, int segmentSize) {
+        ByteBuffer[] buffers = new ByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            buffers[i] = ByteBuffer.allocateDirect(segmentSize);
+        }
+        return buffers;
+    }
+
+    private static ByteBuffer[] map(Path file, int segmentCount, int segmentSize) {
+        // Отображение остается действительным и после закрытия канала, а файл удаляется при закрытии:
+        // после перезапуска индекса все равно нет, и оставлять гигабайты на диске незачем
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.DELETE_ON_CLOSE)) {
+            ByteBuffer[] buffers = new ByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                buffers[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * segmentSize, segmentSize);
+            }
+            return buffers;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось отобразить файл кэша " + file, e);
+        }
+    }
+
+    /**
+     * Найти запись.
+     *
+     * @return запись (значение десериализуется в кучу) или null
+     */
+    public CacheEntry<V> get(String key) {
+        long address = index.get(hash(key));
+        Record record = address == Index.FREE ? null : read(address, true);
+        if (record == null || !record.key.equals(key)) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return new CacheEntry<>(codec.decode(record.value), record.writeNanos);
+    }
+
+    /**
+     * Сохранить запись. Если текущий сегмент заполнен, очищается самый старый.
+     *
+     * @return false, если запись больше сегмента и не сохранена
+     */
+    public boolean put(String key, CacheEntry<V> entry) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = codec.encode(entry.value());
+        long size = (long) HEADER_SIZE + keyBytes.length + valueBytes.length;
+        if (size > segmentSize) {
+            rejected.increment();
+            return false;
+        }
+        long hash = hash(key);
+
+        List<String> evicted = new ArrayList<>();
+        writeLock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            Segment segment = segments[currentSegment];
+            if (segment.position + size > segmentSize) {
+                currentSegment = (currentSegment + 1) % segments.length;
+                segment = segments[currentSegment];
+                recycle(currentSegment, hash, evicted);
+            }
+
+            int offset = segment.position;
+            ByteBuffer buffer = segment.buffer;
+            buffer.putLong(offset, hash);
+            buffer.putLong(offset + 8, entry.writeNanos());
+            buffer.putInt(offset + 16, keyBytes.length);
+            buffer.putInt(offset + 20, valueBytes.length);
+            buffer.put(offset + HEADER_SIZE, keyBytes);
+            buffer.put(offset + HEADER_SIZE + keyBytes.length, valueBytes);
+            segment.position = (int) (offset + size);
+
+            // Публикация через индекс: читатель, получивший адрес, видит записанные байты
+            indexPut(hash, address(currentSegment, segment.generation, offset));
+            return true;
+        } finally {
+            writeLock.unlock();
+            notifyRemoved(evicted);
+        }
+    }
+
+    /**
+     * Удалить запись по ключу.
+     */
+    public void invalidate(String key) {
+        long hash = hash(key);
+        long address = index.get(hash);
+        if (address == Index.FREE) {
+            return;
+        }
+        Record record = read(address, false);
+        // При коллизии хэшей под этим адресом может лежать другой ключ - его не трогаем
+        if (record == null || record.key.equals(key)) {
+            writeLock.lock();
+            try {
+                index.remove(hash, address);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Есть ли запись с таким ключом (без учета в статистике и без чтения значения).
+     */
+    public boolean contains(String key) {
+        long address = index.get(hash(key));
+        Record record = address == Index.FREE ? null : read(address, false);
+        return record != null && record.key.equals(key);
+    }
+
+    /**
+     * Есть ли именно эта версия записи (с тем же моментом записи) - тогда ее незачем сохранять повторно.
+     */
+    public boolean contains(String key, CacheEntry<V> entry) {
+        long address = index.get(hash(key));
+        Record record = address == Index.FREE ? null : read(address, false);
+        return record != null && record.key.equals(key) && record.writeNanos == entry.writeNanos();
+    }
+
+    /**
+     * Удалить все записи. Сегменты очищаются, слушатель удаления не вызывается.
+     */
+    public void invalidateAll() {
+        writeLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            index = new Index(Index.MIN_CAPACITY);
+            for (Segment segment : segments) {
+                long stamp = segment.lock.writeLock();
+                segment.generation = (segment.generation + 1) & 0xFFFF;
+                segment.position = 0;
+                segment.lock.unlockWrite(stamp);
+            }
+            currentSegment = 0;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Освободить память вне кучи. После закрытия кэш пуст: чтения - промахи, записи не сохраняются.
+     */
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            index = new Index(Index.MIN_CAPACITY);
+        } finally {
+            writeLock.unlock();
+        }
+        // Читатель, начавший до закрытия, может еще копировать байты: освобождать память под ним нельзя
+        while (activeReaders.get() > 0) {
+            Thread.onSpinWait();
+        }
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        for (Segment segment : segments) {
+            try {
+                INVOKE_CLEANER.invoke(UNSAFE, segment.buffer);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("Не удалось освободить сегмент кэша вне кучи: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Добавить или заменить адрес в индексе (вызывается под writeLock). Заполненная таблица перестраивается:
+     * растет, если в ней много записей, или просто избавляется от "надгробий" удаленных.
+     */
+    private void indexPut(long hash, long address) {
+        Index current = index;
+        if (current.isFull()) {
+            current = current.rebuild();
+            index = current;
+        }
+        current.put(hash, address);
+    }
+
+    /**
+     * Очистить сегмент перед повторным использованием (вызывается под writeLock).
+     *
+     * @param writingHash хэш записываемого ключа: о его вытеснении не сообщаем, он сейчас же будет записан снова
+     * @param evicted     сюда добавляются вытесненные ключи - слушатель вызывается после снятия блокировки
+     */
+    private void recycle(int segmentIndex, long writingHash, List<String> evicted) {
+        Segment segment = segments[segmentIndex];
+        ByteBuffer buffer = segment.buffer;
+        int offset = 0;
+        while (offset < segment.position) {
+            long hash = buffer.getLong(offset);
+            int keyLength = buffer.getInt(offset + 16);
+            int valueLength = buffer.getInt(offset + 20);
+            // Запись могла быть перезаписана или удалена - тогда индекс указывает уже не сюда
+            if (index.remove(hash, address(segmentIndex, segment.generation, offset))) {
+                evictions.increment();
+                if (removalListener != null && hash != writingHash) {
+                    evicted.add(readKey(buffer, offset + HEADER_SIZE, keyLength));
+                }
+            }
+            offset += HEADER_SIZE + keyLength + valueLength;
+        }
+
+        // Новое поколение: читатели со старыми адресами или старой меткой получат промах
+        long stamp = segment.lock.writeLock();
+        segment.generation = (segment.generation + 1) & 0xFFFF;
+        segment.position = 0;
+        segment.lock.unlockWrite(stamp);
+    }
+
+    /**
+     * Слушатель вызывается вне блокировки: медленный обработчик не задерживает другие записи,
+     * а сам обработчик может снова обращаться к кэшу.
+     */
+    private void notifyRemoved(List<String> evicted) {
+        for (String key : evicted) {
+            try {
+                removalListener.accept(key);
+            } catch (RuntimeException e) {
+                System.err.println("Ошибка обработчика вытеснения: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Прочитать запись по адресу без блокировок.
+     *
+     * @param withValue копировать ли значение (иначе в записи пустой массив)
+     * @return запись или null, если сегмент успели очистить
+     */
+    private Record read(long address, boolean withValue) {
+        // Счетчик увеличивается до проверки closed, а close() выставляет closed до ожидания счетчика:
+        // либо читатель увидит закрытие, либо close() дождется читателя
+        activeReaders.incrementAndGet();
+        try {
+            return closed ? null : readRecord(address, withValue);
+        } finally {
+            activeReaders.decrementAndGet();
+        }
+    }
+
+    private Record readRecord(long address, boolean withValue) {
+        Segment segment = segments[(int) (address >>> 48)];
+        int generation = (int) (address >>> 32) & 0xFFFF;
+        int offset = (int) address;
+
+        long stamp = segment.lock.tryOptimisticRead();
+        if (stamp == 0 || segment.generation != generation) {
+            return null;
+        }
+        ByteBuffer buffer = segment.buffer;
+        long writeNanos = buffer.getLong(offset + 8);
+        int keyLength = buffer.getInt(offset + 16);
+        int valueLength = buffer.getInt(offset + 20);
+        if (keyLength < 0 || valueLength < 0 || (long) offset + HEADER_SIZE + keyLength + valueLength > segmentSize) {
+            // Длины прочитаны из новых данных: сегмент очистили посреди чтения
+            if (segment.lock.validate(stamp)) {
+                throw new IllegalStateException("Corrupted off-heap record at " + Long.toHexString(address));
+            }
+            return null;
+        }
+        byte[] key = new byte[keyLength];
+        byte[] value = new byte[withValue ? valueLength : 0];
+        buffer.get(offset + HEADER_SIZE, key);
+        buffer.get(offset + HEADER_SIZE + keyLength, value);
+        if (!segment.lock.validate(stamp)) {
+            return null;
+        }
+        return new Record(new String(key, StandardCharsets.UTF_8), value, writeNanos);
+    }
+
+    private static String readKey(ByteBuffer buffer, int offset, int length) {
+        byte[] key = new byte[length];
+        buffer.get(offset, key);
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    private static long address(int segmentIndex, int generation, int offset) {
+        return ((long) segmentIndex << 48) | ((long) generation << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 64-битный хэш ключа: коллизии редки, а при совпадении ключ все равно сверяется с сохраненным.
+     */
+    private static long hash(String key) {
+        long h = 1125899906842597L;
+        for (int i = 0; i < key.length(); i++) {
+            h = 31 * h + key.charAt(i);
+        }
+        // Перемешивание (finalizer из MurmurHash3)
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public int size() {
+        return index.size;
+    }
+
+    /**
+     * Занятое место в сегментах, включая перезаписанные и удаленные записи, которые ждут очистки сегмента.
+     */
+    public long usedBytes() {
+        long used = 0;
+        for (Segment segment : segments) {
+            used += segment.position;
+        }
+        return used;
+    }
+
+    public long getCapacityBytes() {
+        return (long) segments.length * segmentSize;
+    }
+
+    public CacheStats getStats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    /**
+     * Сколько записей не сохранено, потому что они больше сегмента.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    private record Record(String key, byte[] value, long writeNanos) {
+    }
+
+    /**
+     * Индекс без объектов на запись: открытая адресация с линейным пробированием, слот - пара соседних
+     * ячеек [хэш][адрес] в одном {@link AtomicLongArray}. Меняется только под writeLock кэша, читается без блокировок.
+     * <p>
+     * Читатель может застать слот посреди изменения (например, новый адрес со старым хэшем), но любой адрес
+     * в таблице указывает на настоящую запись, а ключ записи сверяется с искомым - гонка дает лишь промах.
+     * Занятый слот никогда не становится снова свободным (удаление оставляет "надгробие"), поэтому цепочка
+     * пробирования под читателем не рвется; надгробия убирает перестроение таблицы.
+     */
+    private static final class Index {
+
+        /**
+         * Свободный слот и надгробие. Сегмента с номером 0xFFFF не бывает, поэтому с адресом их не спутать
+         */
+        private static final long FREE = -1L;
+        private static final long TOMBSTONE = -2L;
+
+        private static final int MIN_CAPACITY = 16;
+
+        private final AtomicLongArray slots;
+        private final int mask;
+
+        /**
+         * Количество записей и количество занятых слотов (записи + надгробия)
+         */
+        private volatile int size;
+        private int used;
+
+        private Index(int capacity) {
+            this.slots = new AtomicLongArray(capacity * 2);
+            this.mask = capacity - 1;
+            for (int i = 0; i < capacity; i++) {
+                slots.set(2 * i + 1, FREE);
+            }
+        }
+
+        /**
+         * @return адрес записи или FREE
+         */
+        private long get(long hash) {
+            for (int i = (int) hash & mask; ; i = (i + 1) & mask) {
+                long address = slots.get(2 * i + 1);
+                if (address == FREE) {
+                    return FREE;
+                }
+                if (address != TOMBSTONE && slots.get(2 * i) == hash) {
+                    return address;
+                }
+            }
+        }
+
+        private void put(long hash, long address) {
+            int tombstone = -1;
+            for (int i = (int) hash & mask; ; i = (i + 1) & mask) {
+                long current = slots.get(2 * i + 1);
+                if (current == FREE) {
+                    int slot = tombstone >= 0 ? tombstone : i;
+                    if (tombstone < 0) {
+                        used++;
+                    }
+                    // Сначала адрес, затем хэш: читатель, увидевший новый хэш, увидит и адрес
+                    slots.set(2 * slot + 1, address);
+                    slots.set(2 * slot, hash);
+                    size++;
+                    return;
+                }
+                if (current == TOMBSTONE) {
+                    if (tombstone < 0) {
+                        tombstone = i;
+                    }
+                } else if (slots.get(2 * i) == hash) {
+                    slots.set(2 * i + 1, address);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Удалить запись, если индекс все еще указывает на этот адрес.
+         */
+        private boolean remove(long hash, long address) {
+            for (int i = (int) hash & mask; ; i = (i + 1) & mask) {
+                long current = slots.get(2 * i + 1);
+                if (current == FREE) {
+                    return false;
+                }
+                if (current != TOMBSTONE && slots.get(2 * i) == hash) {
+                    if (current != address) {
+                        return false;
+                    }
+                    slots.set(2 * i + 1, TOMBSTONE);
+                    size--;
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Заполнено ли больше 3/4 слотов: дальше пробирование заметно удлиняется
+         */
+        private boolean isFull() {
+            return used + 1 > (mask + 1) - ((mask + 1) >> 2);
+        }
+
+        /**
+         * Новая таблица без надгробий, заполненная не больше чем наполовину.
+         */
+        private Index rebuild() {
+            int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, (size + 1) * 2) - 1) << 1;
+            Index rebuilt = new Index(capacity);
+            for (int i = 0; i <= mask; i++) {
+                long address = slots.get(2 * i + 1);
+                if (address != FREE && address != TOMBSTONE) {
+                    rebuilt.put(slots.get(2 * i), address);
+                }
+            }
+            return rebuilt;
+        }
+    }
+
+    private static final class Segment {
+        private final ByteBuffer buffer;
+        private final StampedLock lock = new StampedLock();
+
+        /**
+         * Поколение (16 бит) увеличивается при каждой очистке; меняется только под lock
+         */
+        private volatile int generation;
+
+        /**
+         * Конец записанных данных; меняется только под writeLock кэша
+         */
+        private volatile int position;
+
+        private Segment(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * Настройки кэша.
+     */
+    public static class Builder<V> {
+        private final Codec<V> codec;
+        private long capacityBytes = 256L << 20;
+        private int segmentSize;
+        private Path mappedFile;
+        private Consumer<String> removalListener;
+
+        public Builder(Codec<V> codec) {
+            this.codec = codec;
+        }
+
+        /**
+         * Общая емкость в байтах (округляется вниз до целого числа сегментов, минимум два сегмента).
+         */
+        public Builder<V> setCapacityBytes(long capacityBytes) {
+            this.capacityBytes = capacityBytes;
+            return this;
+        }
+
+        /**
+         * Размер сегмента: единица вытеснения и максимальный размер записи
+         * (по умолчанию 1/16 емкости, но не больше 16 MB).
+         */
+        public Builder<V> setSegmentSize(int segmentSize) {
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        /**
+         * Хранить данные в отображенном в память файле вместо direct-буферов.
+         * Файл создается (или обрезается) при создании кэша и сразу удаляется из каталога.
+         */
+        public Builder<V> setMemoryMappedFile(Path mappedFile) {
+            this.mappedFile = mappedFile;
+            return this;
+        }
+
+        /**
+         * Обработчик ключей, вытесненных при очистке сегмента (не вызывается при invalidate).
+         */
+        public Builder<V> setRemovalListener(Consumer<String> removalListener) {
+            this.removalListener = removalListener;
+            return this;
+        }
+
+        public OffHeapCache<V> build() {
+            if (segmentSize == 0) {
+                segmentSize = (int) Math.min(16 << 20, capacityBytes / 16);
+            }
+            if (codec == null || segmentSize <= HEADER_SIZE || capacityBytes < segmentSize
+                || capacityBytes / segmentSize > 0xFFFF) {
+                throw new IllegalArgumentException("Invalid off-heap cache settings: capacity=" + capacityBytes
+                    + ", segmentSize=" + segmentSize);
+            }
+            return new OffHeapCache<>(this);
+        }
+    }
+}
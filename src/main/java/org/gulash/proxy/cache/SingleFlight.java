@@ -0,0 +1,92 @@
+package org.gulash.proxy.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одновременных загрузок одного ключа (single-flight).
+ * <p>
+ * ИДЕЯ:
+ * Когда у популярной записи истекает TTL, все потоки, которые обращаются к ней в этот момент, видят промах
+ * и одновременно идут в БД ("thundering herd"). Здесь первый поток ("ведущий") выполняет загрузку,
+ * а остальные ждут его результата и получают тот же результат (или то же исключение).
+ * Загрузка одного ключа в любой момент выполняется не более одного раза.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight;
+    private final LongAdder loads;
+    private final LongAdder coalesced;
+
+    public SingleFlight() {
+        this.inFlight = new ConcurrentHashMap<>();
+        this.loads = new LongAdder();
+        this.coalesced = new LongAdder();
+    }
+
+    /**
+     * Выполнить загрузку ключа или дождаться уже идущей загрузки того же ключа.
+     *
+     * @param loader загрузка (выполняется только ведущим потоком)
+     * @return результат загрузки
+     */
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        loads.increment();
+        try {
+            V value = loader.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private V await(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            // Ожидающие получают исключение ведущего без обертки
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Сколько загрузок выполняется прямо сейчас.
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Сколько загрузок выполнено (ведущими потоками).
+     */
+    public long getLoadCount() {
+        return loads.sum();
+    }
+
+    /**
+     * Сколько запросов не пошли в источник, а дождались чужой загрузки.
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+}
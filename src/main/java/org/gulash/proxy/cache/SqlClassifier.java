@@ -0,0 +1,242 @@
+package org.gulash.proxy.cache;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Легковесный классификатор SQL для инвалидации кэша: чтение это или запись и какие таблицы затронуты.
+ * <p>
+ * ИДЕЯ:
+ * Полноценный разбор SQL не нужен - достаточно токенизировать запрос (без строковых литералов и комментариев),
+ * определить тип по первому ключевому слову и по каждой команде после ";" и собрать имена после FROM, JOIN,
+ * INTO, UPDATE, TABLE, USING.
+ * <p>
+ * Классификатор консервативен: лишняя таблица приводит лишь к лишней инвалидации, поэтому имена CTE
+ * и табличных функций тоже попадают в список, а схема отбрасывается ({@code public.users} -> {@code users}).
+ * Запись, для которой не удалось определить таблицы (например, вызов процедуры), считается затрагивающей все.
+ */
+public final class SqlClassifier {
+
+    /**
+     * Тип запроса с точки зрения кэша.
+     */
+    public enum Kind {
+        /** Чтение - результат можно кэшировать */
+        READ,
+        /** Изменение данных или схемы - не кэшируется и инвалидирует чтения затронутых таблиц */
+        WRITE,
+        /** Не читает и не меняет таблицы (транзакции, настройки сессии) или блокирующее чтение - выполняется без кэша */
+        OTHER
+    }
+
+    /**
+     * Результат классификации.
+     *
+     * @param kind   тип запроса
+     * @param tables затронутые таблицы (в нижнем регистре, без схемы); пустой набор у записи - "неизвестно какие"
+     */
+    public record Statement(Kind kind, Set<String> tables) {
+
+        public boolean isRead() {
+            return kind == Kind.READ;
+        }
+
+        public boolean isWrite() {
+            return kind == Kind.WRITE;
+        }
+    }
+
+    private static final Set<String> READ_COMMANDS = Set.of(
+        "select", "values", "table", "show", "explain", "describe", "desc");
+
+    private static final Set<String> WRITE_COMMANDS = Set.of(
+        "insert", "update", "delete", "merge", "replace", "upsert", "truncate",
+        "create", "alter", "drop", "rename", "call", "exec", "execute");
+
+    /**
+     * Изменяющие команды, которые могут стоять в скобках (в CTE). После скобки REPLACE(...) - это функция
+     */
+    private static final Set<String> DML_COMMANDS = Set.of("insert", "update", "delete", "merge");
+
+    /**
+     * Ключевые слова, после которых идет имя таблицы
+     */
+    private static final Set<String> TABLE_KEYWORDS = Set.of("from", "join", "into", "table", "using");
+
+    /**
+     * Слова, которые могут стоять после имени таблицы вместо псевдонима
+     */
+    private static final Set<String> CLAUSE_KEYWORDS = Set.of(
+        "where", "join", "inner", "left", "right", "full", "cross", "natural", "on", "using", "group", "order",
+        "having", "limit", "offset", "union", "intersect", "except", "set", "values", "select", "returning",
+        "for", "window", "fetch", "as", "default", "partition", "lateral");
+
+    /**
+     * Строковые литералы и комментарии (вырезаются), затем идентификаторы (в том числе в кавычках) и знаки , ( ) ;
+     */
+    private static final Pattern NOISE = Pattern.compile("'(?:[^']|'')*'|--[^\\n]*|/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern TOKEN = Pattern.compile(
+        "(?:\"[^\"]+\"|`[^`]+`|\\[[^]]+]|[A-Za-z_][A-Za-z0-9_$]*)(?:\\.(?:\"[^\"]+\"|`[^`]+`|\\[[^]]+]|[A-Za-z_][A-Za-z0-9_$]*))*|[,();]");
+
+    private SqlClassifier() {
+    }
+
+    public static Statement classify(String sql) {
+        String[] tokens = tokenize(sql);
+        if (tokens.length == 0) {
+            return new Statement(Kind.OTHER, Set.of());
+        }
+
+        Kind kind = kindOf(tokens);
+        if (kind == Kind.OTHER) {
+            return new Statement(Kind.OTHER, Set.of());
+        }
+        return new Statement(kind, tablesOf(tokens));
+    }
+
+    private static Kind kindOf(String[] tokens) {
+        int first = 0;
+        while (first < tokens.length && tokens[first].equals("(")) {
+            first++;
+        }
+        if (first == tokens.length) {
+            return Kind.OTHER;
+        }
+
+        // Изменяющая команда в любом месте, где начинается (под)запрос: пакет "SELECT 1; DELETE FROM t"
+        // или изменяющий CTE "WITH moved AS (DELETE ... RETURNING *) SELECT ..."
+        for (int i = first; i < tokens.length; i++) {
+            if (isStatementStart(tokens, i) && (i == first || tokens[i - 1].equals(";")
+                ? WRITE_COMMANDS.contains(tokens[i]) : DML_COMMANDS.contains(tokens[i]))) {
+                return Kind.WRITE;
+            }
+        }
+
+        String command = tokens[first];
+        if (command.equals("explain")) {
+            return explainKind(tokens, first);
+        }
+        if (command.equals("with") || READ_COMMANDS.contains(command)) {
+            // SELECT ... INTO создает таблицу (или пишет в переменные/файл) - это не чтение
+            if (Arrays.asList(tokens).contains("into")) {
+                return Kind.WRITE;
+            }
+            // SELECT ... FOR UPDATE/SHARE берет блокировки - его нельзя отдавать из кэша
+            return lockingRead(tokens) ? Kind.OTHER : Kind.READ;
+        }
+        return Kind.OTHER;
+    }
+
+    /**
+     * EXPLAIN без ANALYZE только строит план. EXPLAIN ANALYZE выполняет запрос: изменяющий запрос
+     * остается записью, а результат для чтения (время выполнения) кэшировать бессмысленно.
+     */
+    private static Kind explainKind(String[] tokens, int first) {
+        boolean analyze = false;
+        for (int i = first + 1; i < tokens.length; i++) {
+            String token = tokens[i];
+            if (token.equals("analyze") || token.equals("analyse")) {
+                analyze = true;
+            } else if (WRITE_COMMANDS.contains(token) || (READ_COMMANDS.contains(token) && !token.equals("explain"))
+                || token.equals("with")) {
+                if (!analyze) {
+                    return Kind.READ;
+                }
+                return WRITE_COMMANDS.contains(token) || Arrays.asList(tokens).contains("into") ? Kind.WRITE : Kind.OTHER;
+            }
+        }
+        return analyze ? Kind.OTHER : Kind.READ;
+    }
+
+    private static boolean lockingRead(String[] tokens) {
+        for (int i = 0; i + 1 < tokens.length; i++) {
+            if (tokens[i].equals("for") && (tokens[i + 1].equals("update") || tokens[i + 1].equals("share"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Начинается ли в позиции i (под)запрос: в начале текста, после скобки или после ";".
+     * Так UPDATE в "ON CONFLICT DO UPDATE" или "FOR UPDATE" не принимается за начало команды.
+     */
+    private static boolean isStatementStart(String[] tokens, int i) {
+        return i == 0 || tokens[i - 1].equals("(") || tokens[i - 1].equals(")") || tokens[i - 1].equals(";");
+    }
+
+    private static Set<String> tablesOf(String[] tokens) {
+        Set<String> tables = new LinkedHashSet<>();
+        for (int i = 0; i < tokens.length; i++) {
+            String token = tokens[i];
+            boolean tableFollows = TABLE_KEYWORDS.contains(token)
+                || (token.equals("update") && isStatementStart(tokens, i))
+                || (token.equals("delete") && isStatementStart(tokens, i)
+                    && i + 1 < tokens.length && !tokens[i + 1].equals("from"));
+            if (!tableFollows) {
+                continue;
+            }
+            // DELETE FROM и INSERT INTO обрабатываются по FROM/INTO, TRUNCATE TABLE - по TABLE,
+            // а UPDATE t и DELETE t FROM ... - по самому UPDATE/DELETE
+            int next = i + 1;
+            while (next < tokens.length) {
+                while (next < tokens.length && isModifier(tokens[next])) {
+                    next++;
+                }
+                if (next >= tokens.length || !isIdentifier(tokens[next])) {
+                    break; // подзапрос "(SELECT ...)" - его таблицы найдутся при дальнейшем проходе
+                }
+                tables.add(tableName(tokens[next]));
+                next++;
+                // Список через запятую: FROM a x, b AS y
+                if (next < tokens.length && tokens[next].equals("as")) {
+                    next++;
+                }
+                if (next < tokens.length && isIdentifier(tokens[next])) {
+                    next++;
+                }
+                if (next < tokens.length && tokens[next].equals(",") && !token.equals("into")) {
+                    next++;
+                } else {
+                    break;
+                }
+            }
+        }
+        return Collections.unmodifiableSet(tables);
+    }
+
+    /**
+     * Слова между ключевым словом и именем таблицы: TRUNCATE TABLE ONLY t, DROP TABLE IF EXISTS t
+     */
+    private static boolean isModifier(String token) {
+        return token.equals("only") || token.equals("if") || token.equals("not") || token.equals("exists")
+            || token.equals("lateral") || token.equals("ignore");
+    }
+
+    private static boolean isIdentifier(String token) {
+        char first = token.charAt(0);
+        return first != ',' && first != '(' && first != ')' && first != ';'
+            && !CLAUSE_KEYWORDS.contains(token) && !READ_COMMANDS.contains(token);
+    }
+
+    private static String tableName(String token) {
+        String name = token.substring(token.lastIndexOf('.') + 1);
+        char first = name.charAt(0);
+        if (first == '"' || first == '`' || first == '[') {
+            name = name.substring(1, name.length() - 1);
+        }
+        return name;
+    }
+
+    private static String[] tokenize(String sql) {
+        String text = NOISE.matcher(sql).replaceAll(" ").toLowerCase(Locale.ROOT);
+        Matcher matcher = TOKEN.matcher(text);
+        return matcher.results().map(MatchResult::group).toArray(String[]::new);
+    }
+}
@@ -0,0 +1,133 @@
+package org.gulash.proxy.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Индекс "таблица -> закэшированные ключи, которые из нее читают" для инвалидации кэша по записи.
+ * <p>
+ * ИДЕЯ:
+ * При записи в таблицу достаточно удалить из кэша только чтения этой таблицы, а не весь кэш и не ждать TTL.
+ * <p>
+ * Гонка "чтение началось до записи, а результат попал в кэш после нее" закрывается версиями таблиц:
+ * загрузчик запоминает {@link #version(Set)} до запроса к БД, после записи в кэш регистрирует ключ
+ * ({@link #register}) и снова сверяет версию. Запись сначала увеличивает версии, затем удаляет
+ * зарегистрированные ключи ({@link #invalidate(Set)}). Поэтому либо запись увидит ключ в индексе,
+ * либо загрузчик увидит новую версию и сам удалит свой результат.
+ *
+ * @param <K> ключ кэша
+ */
+public class TableDependencyIndex<K> {
+
+    private final ConcurrentHashMap<String, Set<K>> keysByTable;
+    private final ConcurrentHashMap<String, AtomicLong> versions;
+
+    /**
+     * Версия "всех таблиц": увеличивается записью, для которой таблицы неизвестны
+     */
+    private final AtomicLong globalVersion;
+
+    public TableDependencyIndex() {
+        this.keysByTable = new ConcurrentHashMap<>();
+        this.versions = new ConcurrentHashMap<>();
+        this.globalVersion = new AtomicLong();
+    }
+
+    /**
+     * Версия набора таблиц: меняется после любой записи в одну из них.
+     */
+    public long version(Set<String> tables) {
+        // Сумма неубывающих счетчиков меняется тогда и только тогда, когда меняется хотя бы один из них
+        long version = globalVersion.get();
+        for (String table : tables) {
+            AtomicLong tableVersion = versions.get(table);
+            if (tableVersion != null) {
+                version += tableVersion.get();
+            }
+        }
+        return version;
+    }
+
+    /**
+     * Зарегистрировать ключ, читающий указанные таблицы. Вызывается после записи значения в кэш.
+     */
+    public void register(K key, Set<String> tables) {
+        for (String table : tables) {
+            // Пустые наборы не удаляются: их не больше, чем таблиц, зато нет гонки с удалением набора
+            keysByTable.computeIfAbsent(table, t -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+    }
+
+    /**
+     * Убрать ключ из индекса (например, когда кэш вытеснил запись).
+     */
+    public void unregister(K key, Set<String> tables) {
+        for (String table : tables) {
+            Set<K> keys = keysByTable.get(table);
+            if (keys != null) {
+                keys.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Зарегистрирован ли ключ во всех своих таблицах. Запись в любую из них убирает ключ из индекса,
+     * поэтому false означает, что значение, которое переносится между уровнями кэша, могло устареть.
+     */
+    public boolean isRegistered(K key, Set<String> tables) {
+        for (String table : tables) {
+            Set<K> keys = keysByTable.get(table);
+            if (keys == null || !keys.contains(key)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Запись в таблицы: увеличить их версии и извлечь из индекса все ключи, которые их читают.
+     *
+     * @return ключи, которые нужно удалить из кэша
+     */
+    public List<K> invalidate(Set<String> tables) {
+        for (String table : tables) {
+            versions.computeIfAbsent(table, t -> new AtomicLong()).incrementAndGet();
+        }
+        List<K> invalidated = new ArrayList<>();
+        for (String table : tables) {
+            Set<K> keys = keysByTable.get(table);
+            if (keys == null) {
+                continue;
+            }
+            for (K key : keys) {
+                if (keys.remove(key)) {
+                    invalidated.add(key);
+                }
+            }
+        }
+        return invalidated;
+    }
+
+    /**
+     * Запись в неизвестные таблицы: изменить версии всех таблиц и очистить индекс.
+     * Удалить записи из самого кэша должен вызывающий.
+     */
+    public void invalidateAll() {
+        globalVersion.incrementAndGet();
+        keysByTable.values().forEach(Set::clear);
+    }
+
+    /**
+     * Количество пар "таблица - ключ" в индексе.
+     */
+    public int size() {
+        int size = 0;
+        for (Set<K> keys : keysByTable.values()) {
+            size += keys.size();
+        }
+        return size;
+    }
+}
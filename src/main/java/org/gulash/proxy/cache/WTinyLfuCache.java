@@ -0,0 +1,541 @@
+package org.gulash.proxy.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * Потокобезопасный кэш ограниченного размера с политикой W-TinyLFU (как в Caffeine, в упрощенном виде).
+ * <p>
+ * ИДЕЯ:
+ * Чистый LRU вымывается однократными запросами (например, отчетом, который прочитал тысячу редких строк),
+ * а чистый LFU медленно забывает то, что было популярно раньше. W-TinyLFU сочетает оба подхода:
+ * - Новые записи попадают в маленькое LRU-окно (1% емкости) - так недавние записи успевают набрать частоту
+ * - Вытесненная из окна запись-кандидат попадает в основную область, только если по оценке
+ *   {@link FrequencySketch} к ней обращались чаще, чем к жертве - самой давней записи основной области
+ * - Основная область - сегментированный LRU: испытательный сегмент (20%) и защищенный (80%), куда
+ *   запись переходит при повторном обращении
+ * <p>
+ * ПОТОКОБЕЗОПАСНОСТЬ:
+ * Чтение не берет блокировок: запись ищется в {@link ConcurrentHashMap}, а факт обращения складывается
+ * в небольшой кольцевой буфер (с потерями при переполнении - для статистики частот это допустимо).
+ * Буфер разбирается под блокировкой политики, когда его удается взять без ожидания или при записи.
+ * Запись, удаление и вытеснение выполняются под блокировкой ({@link ReentrantLock}).
+ * <p>
+ * Размер ограничивается количеством записей ({@link Builder#setMaximumSize}) или суммарным "весом"
+ * ({@link Builder#setMaximumWeight}), например длиной результата в символах.
+ *
+ * <pre>{@code
+ * WTinyLfuCache<String, String> cache = new WTinyLfuCache.Builder<String, String>()
+ *     .setMaximumSize(10_000)
+ *     .build();
+ * }</pre>
+ */
+public class WTinyLfuCache<K, V> {
+
+    /**
+     * Размер кольцевого буфера обращений (степень двойки)
+     */
+    private static final int READ_BUFFER_SIZE = 128;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+    /**
+     * Как часто чтение пытается разобрать буфер обращений (раз в столько обращений, степень двойки)
+     */
+    private static final int DRAIN_THRESHOLD = 32;
+
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private final ToIntBiFunction<? super K, ? super V> weigher;
+    private final BiConsumer<K, CacheEntry<V>> evictionListener;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data;
+    private final ReentrantLock evictionLock;
+    private final FrequencySketch sketch;
+
+    private final AtomicReferenceArray<Node<K, V>> readBuffer;
+    private final AtomicInteger readCounter;
+
+    // Сегменты политики и их вес (меняются только под evictionLock)
+    private final AccessOrderList<K, V> window;
+    private final AccessOrderList<K, V> probation;
+    private final AccessOrderList<K, V> protectedSegment;
+    private long windowWeight;
+    private long mainWeight;
+    private long protectedWeight;
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+
+    private WTinyLfuCache(Builder<K, V> builder) {
+        this.maximumWeight = builder.maximumWeight;
+        this.weigher = builder.weigher;
+        this.evictionListener = builder.evictionListener;
+        this.windowMaximum = Math.max(1, maximumWeight / 100);
+        this.protectedMaximum = (long) ((maximumWeight - windowMaximum) * 0.8);
+
+        this.data = new ConcurrentHashMap<>();
+        this.evictionLock = new ReentrantLock();
+        this.sketch = new FrequencySketch(builder.expectedEntries);
+        this.readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+        this.readCounter = new AtomicInteger();
+
+        this.window = new AccessOrderList<>();
+        this.probation = new AccessOrderList<>();
+        this.protectedSegment = new AccessOrderList<>();
+
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+    }
+
+    /**
+     * Запись по ключу или null. Учитывается в счетчиках попаданий и промахов.
+     */
+    public CacheEntry<V> getIfPresent(K key) {
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        recordRead(node);
+        return node.entry;
+    }
+
+    /**
+     * Запись по ключу, если она моложе maxAgeNanos. Более старая запись считается промахом,
+     * но не удаляется: решение о ней (удалить, перезагрузить, отдать устаревшей) принимает вызывающий.
+     */
+    public CacheEntry<V> getIfPresent(K key, long maxAgeNanos) {
+        Node<K, V> node = data.get(key);
+        CacheEntry<V> entry = node == null ? null : node.entry;
+        if (entry == null || entry.ageNanos() >= maxAgeNanos) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        recordRead(node);
+        return entry;
+    }
+
+    /**
+     * Запись по ключу без учета в статистике и политике вытеснения (для служебных проверок).
+     */
+    public CacheEntry<V> peek(K key) {
+        Node<K, V> node = data.get(key);
+        return node == null ? null : node.entry;
+    }
+
+    /**
+     * Сохранить значение (момент записи - сейчас). Если кэш переполнен, вытесняются записи по политике W-TinyLFU.
+     */
+    public void put(K key, V value) {
+        put(key, new CacheEntry<>(value, System.nanoTime()));
+    }
+
+    /**
+     * Сохранить готовую запись с ее моментом записи (например, перенесенную из другого уровня кэша,
+     * чтобы возраст и TTL считались от исходной загрузки).
+     */
+    public void put(K key, CacheEntry<V> entry) {
+        int weight = weigher.applyAsInt(key, entry.value());
+        if (weight < 0) {
+            throw new IllegalArgumentException("Negative weight: " + weight);
+        }
+
+        List<Node<K, V>> evicted = new ArrayList<>();
+        evictionLock.lock();
+        try {
+            drainReadBuffer();
+            sketch.increment(key);
+
+            Node<K, V> node = data.get(key);
+            if (node != null) {
+                // Обновление: запись остается в своем сегменте, меняется только вес
+                node.entry = entry;
+                addWeight(node, weight - node.weight);
+                node.weight = weight;
+                onAccess(node);
+            } else {
+                node = new Node<>(key, entry, weight);
+                data.put(key, node);
+                node.segment = Segment.WINDOW;
+                window.addLast(node);
+                windowWeight += weight;
+            }
+            evict(evicted);
+        } finally {
+            evictionLock.unlock();
+        }
+        notifyEvicted(evicted);
+    }
+
+    /**
+     * Удалить запись по ключу (без учета в счетчике вытеснений).
+     *
+     * @return удаленная запись или null
+     */
+    public CacheEntry<V> invalidate(K key) {
+        evictionLock.lock();
+        try {
+            Node<K, V> node = data.remove(key);
+            if (node == null) {
+                return null;
+            }
+            unlink(node);
+            return node.entry;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Удалить запись, только если она все еще та же (не была перезаписана).
+     *
+     * @return true, если запись удалена
+     */
+    public boolean invalidate(K key, CacheEntry<V> expected) {
+        evictionLock.lock();
+        try {
+            Node<K, V> node = data.get(key);
+            if (node == null || node.entry != expected) {
+                return false;
+            }
+            data.remove(key);
+            unlink(node);
+            return true;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Удалить все записи.
+     */
+    public void invalidateAll() {
+        evictionLock.lock();
+        try {
+            for (Node<K, V> node : data.values()) {
+                unlink(node);
+            }
+            data.clear();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * Суммарный вес записей (при ограничении по количеству - то же, что size).
+     */
+    public long weightedSize() {
+        evictionLock.lock();
+        try {
+            return windowWeight + mainWeight;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public CacheStats getStats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    /**
+     * Зафиксировать обращение без блокировки: положить узел в кольцевой буфер.
+     * Если буфер давно не разбирался, пробуем разобрать его сами - но только если блокировка свободна.
+     */
+    private void recordRead(Node<K, V> node) {
+        int count = readCounter.getAndIncrement();
+        readBuffer.lazySet(count & READ_BUFFER_MASK, node);
+        // Маска, а не %: после переполнения счетчика остаток от деления отрицательный и разбор бы прекратился
+        if ((count & (DRAIN_THRESHOLD - 1)) == DRAIN_THRESHOLD - 1 && evictionLock.tryLock()) {
+            try {
+                drainReadBuffer();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void drainReadBuffer() {
+        for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+            Node<K, V> node = readBuffer.getAndSet(i, null);
+            if (node != null && node.segment != null) {
+                sketch.increment(node.key);
+                onAccess(node);
+            }
+        }
+    }
+
+    /**
+     * Повторное обращение: в окне и защищенном сегменте - "освежить" позицию,
+     * из испытательного сегмента - перевести в защищенный.
+     */
+    private void onAccess(Node<K, V> node) {
+        switch (node.segment) {
+            case WINDOW -> window.moveToLast(node);
+            case PROTECTED -> protectedSegment.moveToLast(node);
+            case PROBATION -> {
+                probation.remove(node);
+                node.segment = Segment.PROTECTED;
+                protectedSegment.addLast(node);
+                protectedWeight += node.weight;
+                // Защищенный сегмент переполнен - самые давние записи возвращаются в испытательный
+                while (protectedWeight > protectedMaximum && protectedSegment.first() != node) {
+                    Node<K, V> demoted = protectedSegment.removeFirst();
+                    protectedWeight -= demoted.weight;
+                    demoted.segment = Segment.PROBATION;
+                    probation.addLast(demoted);
+                }
+            }
+        }
+    }
+
+    /**
+     * Вытеснить записи, пока кэш не уложится в ограничения. Вызывается под evictionLock.
+     */
+    private void evict(List<Node<K, V>> evicted) {
+        // 1. Окно переполнено - самые давние записи окна становятся кандидатами в основную область
+        while (windowWeight > windowMaximum) {
+            Node<K, V> candidate = window.removeFirst();
+            windowWeight -= candidate.weight;
+            admit(candidate, evicted);
+        }
+
+        // 2. Основная область могла переполниться из-за обновления веса существующей записи
+        while (windowWeight + mainWeight > maximumWeight) {
+            Node<K, V> victim = probation.first() != null ? probation.first()
+                : protectedSegment.first() != null ? protectedSegment.first() : window.first();
+            removeEvicted(victim, evicted);
+        }
+    }
+
+    /**
+     * Фильтр допуска TinyLFU: кандидат вытесняет жертв (самые давние записи основной области),
+     * только если к нему обращались чаще каждой из них. Иначе вытесняется сам кандидат.
+     */
+    private void admit(Node<K, V> candidate, List<Node<K, V>> evicted) {
+        long mainMaximum = maximumWeight - windowMaximum;
+        int candidateFrequency = sketch.frequency(candidate.key);
+        while (mainWeight + candidate.weight > mainMaximum) {
+            Node<K, V> victim = probation.first() != null ? probation.first() : protectedSegment.first();
+            if (victim == null || sketch.frequency(victim.key) >= candidateFrequency) {
+                candidate.segment = null;
+                data.remove(candidate.key, candidate);
+                evicted.add(candidate);
+                return;
+            }
+            removeEvicted(victim, evicted);
+        }
+        candidate.segment = Segment.PROBATION;
+        probation.addLast(candidate);
+        mainWeight += candidate.weight;
+    }
+
+    private void removeEvicted(Node<K, V> node, List<Node<K, V>> evicted) {
+        unlink(node);
+        data.remove(node.key, node);
+        evicted.add(node);
+    }
+
+    /**
+     * Убрать узел из его сегмента. Вызывается под evictionLock.
+     */
+    private void unlink(Node<K, V> node) {
+        if (node.segment == null) {
+            return;
+        }
+        switch (node.segment) {
+            case WINDOW -> {
+                window.remove(node);
+                windowWeight -= node.weight;
+            }
+            case PROBATION -> {
+                probation.remove(node);
+                mainWeight -= node.weight;
+            }
+            case PROTECTED -> {
+                protectedSegment.remove(node);
+                protectedWeight -= node.weight;
+                mainWeight -= node.weight;
+            }
+        }
+        node.segment = null;
+    }
+
+    private void addWeight(Node<K, V> node, int delta) {
+        switch (node.segment) {
+            case WINDOW -> windowWeight += delta;
+            case PROBATION -> mainWeight += delta;
+            case PROTECTED -> {
+                protectedWeight += delta;
+                mainWeight += delta;
+            }
+        }
+    }
+
+    /**
+     * Слушатель вызывается после снятия блокировки: медленный обработчик не задерживает другие записи.
+     */
+    private void notifyEvicted(List<Node<K, V>> evicted) {
+        evictions.add(evicted.size());
+        if (evictionListener == null) {
+            return;
+        }
+        for (Node<K, V> node : evicted) {
+            try {
+                evictionListener.accept(node.key, node.entry);
+            } catch (RuntimeException e) {
+                System.err.println("Ошибка обработчика вытеснения: " + e.getMessage());
+            }
+        }
+    }
+
+    private enum Segment {
+        WINDOW,
+        PROBATION,
+        PROTECTED
+    }
+
+    /**
+     * Узел кэша: запись и ссылки двусвязного списка своего сегмента (ссылки и сегмент - под evictionLock).
+     */
+    private static final class Node<K, V> {
+        private final K key;
+        private volatile CacheEntry<V> entry;
+        private int weight;
+        private Segment segment;
+        private Node<K, V> prev;
+        private Node<K, V> next;
+
+        private Node(K key, CacheEntry<V> entry, int weight) {
+            this.key = key;
+            this.entry = entry;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Двусвязный список узлов в порядке обращений: первый - самый давний.
+     */
+    private static final class AccessOrderList<K, V> {
+        private Node<K, V> head;
+        private Node<K, V> tail;
+
+        private Node<K, V> first() {
+            return head;
+        }
+
+        private void addLast(Node<K, V> node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+        }
+
+        private Node<K, V> removeFirst() {
+            Node<K, V> node = head;
+            remove(node);
+            return node;
+        }
+
+        private void remove(Node<K, V> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+        }
+
+        private void moveToLast(Node<K, V> node) {
+            if (node != tail) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+
+    /**
+     * Настройки кэша.
+     */
+    public static class Builder<K, V> {
+        private long maximumWeight = 10_000;
+        private long expectedEntries = 10_000;
+        private ToIntBiFunction<? super K, ? super V> weigher = (key, value) -> 1;
+        private BiConsumer<K, CacheEntry<V>> evictionListener;
+
+        /**
+         * Ограничить кэш количеством записей.
+         */
+        public Builder<K, V> setMaximumSize(long maximumSize) {
+            this.maximumWeight = maximumSize;
+            this.expectedEntries = maximumSize;
+            this.weigher = (key, value) -> 1;
+            return this;
+        }
+
+        /**
+         * Ограничить кэш суммарным весом записей.
+         *
+         * @param maximumWeight максимальный суммарный вес
+         * @param weigher       вес записи (например, размер результата)
+         */
+        public Builder<K, V> setMaximumWeight(long maximumWeight, ToIntBiFunction<? super K, ? super V> weigher) {
+            this.maximumWeight = maximumWeight;
+            this.weigher = weigher;
+            return this;
+        }
+
+        /**
+         * Ожидаемое количество записей - размер таблицы частот (по умолчанию - как maximumSize).
+         */
+        public Builder<K, V> setExpectedEntries(long expectedEntries) {
+            this.expectedEntries = expectedEntries;
+            return this;
+        }
+
+        /**
+         * Обработчик записей, вытесненных из-за ограничения размера (не вызывается при invalidate).
+         */
+        public Builder<K, V> setEvictionListener(BiConsumer<K, CacheEntry<V>> evictionListener) {
+            this.evictionListener = evictionListener;
+            return this;
+        }
+
+        public WTinyLfuCache<K, V> build() {
+            if (maximumWeight <= 0 || expectedEntries <= 0 || weigher == null) {
+                throw new IllegalArgumentException("Invalid cache settings: maximumWeight=" + maximumWeight
+                    + ", expectedEntries=" + expectedEntries);
+            }
+            return new WTinyLfuCache<>(this);
+        }
+    }
+}
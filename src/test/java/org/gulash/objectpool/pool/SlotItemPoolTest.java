@@ -0,0 +1,67 @@
+package org.gulash.objectpool.pool;
+
+import org.gulash.objectpool.factory.ItemFactory;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class SlotItemPoolTest {
+
+    /**
+     * Каждая вторая валидация не проходит: объекты постоянно уничтожаются и создаются заново,
+     * identity-таблица копит удаленные ключи.
+     */
+    private static final class FlakyFactory implements ItemFactory<Object> {
+        private final AtomicInteger validations = new AtomicInteger();
+
+        @Override
+        public Object create(ItemPool<Object> objectPool) {
+            return new Object();
+        }
+
+        @Override
+        public boolean validate(Object object) {
+            return validations.incrementAndGet() % 2 == 0;
+        }
+    }
+
+    @Test
+    void lookupOfForeignObjectTerminatesAfterChurn() {
+        SlotItemPool<Object> pool = new SlotItemPool<>(new FlakyFactory(), 0, 4);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for (int i = 0; i < 20_000; i++) {
+                Object object = pool.acquire(1_000);
+                assertNotNull(object);
+                pool.release(object);
+            }
+
+            assertThrows(IllegalArgumentException.class, () -> pool.release(new Object()));
+            assertFalse(pool.isInUse(new Object()));
+        });
+    }
+
+    @Test
+    void staleObjectIsRejectedAfterChurn() throws InterruptedException {
+        SlotItemPool<Object> pool = new SlotItemPool<>(new FlakyFactory(), 0, 4);
+        Object first = pool.acquire(1_000);
+        pool.release(first);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for (int i = 0; i < 20_000; i++) {
+                pool.release(pool.acquire(1_000));
+            }
+            // Объект уже возвращен или давно уничтожен (его слот, возможно, занят другим) - вернуть его нельзя
+            assertFalse(pool.isInUse(first));
+            assertThrows(IllegalArgumentException.class, () -> pool.release(first));
+        });
+        assertEquals(0, pool.getStatistics().getInUseObjects());
+    }
+}